@@ -0,0 +1,85 @@
+package Benchmarks;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import Util.ConnectionUtil;
+
+/**
+ * A seeded, file-backed H2 database for the JMH benchmarks. Each size gets its own database in
+ * <code>./h2/bench-&lt;messages&gt;</code>, seeded once and reused by later runs, since seeding the largest takes a
+ * while. Run the benchmarks from the project root so the seed script and database paths resolve.
+ *
+ * Besides the test user and message from the seed script, the database holds one account per
+ * {@link #MESSAGES_PER_ACCOUNT} messages, named <code>user&lt;account_id&gt;</code>, and the messages are spread evenly
+ * across the accounts.
+ */
+public final class BenchmarkDatabase {
+    public static final int MESSAGES_PER_ACCOUNT = 100;
+    private static final int SEED_CHUNK = 1_000_000;
+
+    private BenchmarkDatabase() {
+    }
+
+    /**
+     * Point {@link ConnectionUtil} at the database for a size, seeding it if needed. Must be called before anything
+     * else touches <code>ConnectionUtil</code>, which reads the <code>db.url</code> system property once.
+     * @param messages The number of messages the database holds.
+     */
+    public static void open(int messages) throws SQLException {
+        System.setProperty("db.url", "jdbc:h2:./h2/bench-" + messages + ";");
+        if (isSeeded(messages))
+            return;
+        ConnectionUtil.resetTestDatabase();
+        int accounts = accounts(messages);
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            PreparedStatement insertAccounts = connection.prepareStatement(
+                    "INSERT INTO account (username, password) SELECT 'user' || X, 'password' FROM SYSTEM_RANGE(2, ?)");
+            insertAccounts.setInt(1, accounts);
+            insertAccounts.executeUpdate();
+            // Chunked, so the largest database isn't seeded in a single huge transaction.
+            PreparedStatement insertMessages = connection.prepareStatement(
+                    "INSERT INTO message (posted_by, message_text, time_posted_epoch) "
+                    + "SELECT MOD(X, ?) + 1, 'seed message ' || X, 1669947792 + X FROM SYSTEM_RANGE(?, ?)");
+            for (int start = 2; start <= messages; start += SEED_CHUNK) {
+                insertMessages.setInt(1, accounts);
+                insertMessages.setInt(2, start);
+                insertMessages.setInt(3, Math.min(messages, start + SEED_CHUNK - 1));
+                insertMessages.executeUpdate();
+            }
+            connection.createStatement().execute("CREATE TABLE bench_seed (messages int)");
+            connection.createStatement().execute("INSERT INTO bench_seed VALUES (" + messages + ")");
+        }
+    }
+
+    /**
+     * Remove the messages a benchmark added, so the database stays the seeded size across runs.
+     * @param messages The number of messages the database was seeded with.
+     */
+    public static void trim(int messages) throws SQLException {
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            PreparedStatement preparedStatement = connection.prepareStatement("DELETE FROM message WHERE message_id > ?");
+            preparedStatement.setInt(1, messages);
+            preparedStatement.executeUpdate();
+        }
+    }
+
+    /**
+     * @param messages The number of messages the database holds.
+     * @return The number of accounts the database holds, with IDs from 1.
+     */
+    public static int accounts(int messages) {
+        return Math.max(1, messages / MESSAGES_PER_ACCOUNT);
+    }
+
+    private static boolean isSeeded(int messages) {
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            ResultSet rs = connection.createStatement().executeQuery("SELECT messages FROM bench_seed");
+            return rs.next() && rs.getInt("messages") == messages;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+}
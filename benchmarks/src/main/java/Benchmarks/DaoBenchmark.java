@@ -0,0 +1,82 @@
+package Benchmarks;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import DAO.AccountDAO;
+import DAO.MessageDAO;
+import Model.Account;
+import Model.Message;
+
+/**
+ * Latency of the DAO hot paths against a seeded database of each size. Lookups pick a random existing row, so they
+ * measure the index rather than a single cached page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DaoBenchmark {
+    @Param({"1000", "100000", "10000000"})
+    int messages;
+
+    MessageDAO messageDAO;
+    AccountDAO accountDAO;
+    int accounts;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        BenchmarkDatabase.open(messages);
+        messageDAO = new MessageDAO();
+        accountDAO = new AccountDAO();
+        accounts = BenchmarkDatabase.accounts(messages);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        BenchmarkDatabase.trim(messages);
+    }
+
+    @Benchmark
+    public Message insertMessage() {
+        return messageDAO.insertMessage(new Message(1, "benchmark message", 1669947792L));
+    }
+
+    @Benchmark
+    public Message getMessageByID() {
+        return messageDAO.getMessageByID(1 + ThreadLocalRandom.current().nextInt(messages));
+    }
+
+    @Benchmark
+    public List<Message> getAllMessagesByAccountID() {
+        return messageDAO.getAllMessagesByAccountID(1 + ThreadLocalRandom.current().nextInt(accounts));
+    }
+
+    /**
+     * The lookup behind login. Passwords are stored hashed, so login finds the account by username alone and checks the
+     * password in memory.
+     */
+    @Benchmark
+    public Account getAccountByUsername() {
+        int id = 1 + ThreadLocalRandom.current().nextInt(accounts);
+        return accountDAO.getAccountByUsername(id == 1 ? "testuser1" : "user" + id);
+    }
+}
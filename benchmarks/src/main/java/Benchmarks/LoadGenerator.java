@@ -0,0 +1,383 @@
+package Benchmarks;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import Controller.SocialMediaController;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+/**
+ * Open-loop load generator for the API's routes. Requests are scheduled at a fixed total rate, independent of how fast
+ * the server answers, and sent by a fixed number of client threads. Latency is measured from when a request was
+ * scheduled rather than when it was actually sent, so a stalled server is charged for every request that queued up
+ * behind the stall instead of hiding it (no coordinated omission).
+ *
+ * Records an HdrHistogram per route and prints p50/p90/p99/p99.9 latency and throughput, then writes the same numbers
+ * as a JSON report that can be diffed between builds. Also reports the response bytes received per route, as sent on
+ * the wire, and the process CPU time spent per request while measuring. Run once with
+ * <code>load.acceptEncoding=gzip</code> and once without to see what compression trades in CPU for bandwidth; the
+ * CPU time includes the client's, but the client does the same work either way since it never decompresses.
+ *
+ * Tunable with system properties:
+ * <ul>
+ * <li><code>load.rate</code>: requests/sec across all routes (default 200)</li>
+ * <li><code>load.concurrency</code>: client threads, the most requests in flight (default 64)</li>
+ * <li><code>load.seconds</code> and <code>load.warmupSeconds</code>: measured and unmeasured run time (30 and 5)</li>
+ * <li><code>load.mix</code>: <code>route:weight</code> pairs, from the routes in {@link #ROUTES}. Register and login
+ * hash a password on every request, so a few percent of them can saturate a small machine</li>
+ * <li><code>load.url</code>: a running server to load; otherwise one is started in-process on <code>load.port</code>
+ * against the seeded H2 database in <code>./h2</code>, with <code>load.seedMessages</code> messages</li>
+ * <li><code>load.report</code>: where to write the JSON report (default <code>benchmarks/target/load-report.json</code>)</li>
+ * <li><code>load.seed</code>: seeds the route mix, so runs send the same sequence of routes</li>
+ * <li><code>load.acceptEncoding</code>: the <code>Accept-Encoding</code> header to send, e.g. <code>gzip</code>
+ * (default none, so responses are uncompressed)</li>
+ * </ul>
+ * Run it from the project root with
+ * <code>mvn -f benchmarks/pom.xml compile exec:java -Dexec.mainClass=Benchmarks.LoadGenerator</code>.
+ */
+public class LoadGenerator {
+    /**
+     * The routes exposed by <code>SocialMediaController.startAPI()</code>, by name.
+     */
+    static final String[] ROUTES = {
+        "register", "login", "getMessages", "getMessage", "postMessage", "patchMessage", "deleteMessage", "getAccountMessages",
+    };
+
+    private static final int rate = Integer.getInteger("load.rate", 200);
+    private static final int concurrency = Integer.getInteger("load.concurrency", 64);
+    private static final int seconds = Integer.getInteger("load.seconds", 30);
+    private static final int warmupSeconds = Integer.getInteger("load.warmupSeconds", 5);
+    private static final int drainSeconds = Integer.getInteger("load.drainSeconds", 30);
+    private static final String mix = System.getProperty("load.mix",
+            "getMessage:45,getMessages:10,getAccountMessages:10,postMessage:20,patchMessage:8,deleteMessage:5,register:1,login:1");
+    private static final String url = System.getProperty("load.url");
+    private static final int port = Integer.getInteger("load.port", 8080);
+    private static final int seedMessages = Integer.getInteger("load.seedMessages", 1000);
+    private static final String report = System.getProperty("load.report", "benchmarks/target/load-report.json");
+    private static final long seed = Long.getLong("load.seed", 42);
+    private static final String acceptEncoding = System.getProperty("load.acceptEncoding");
+
+    /**
+     * Process CPU time spent while measured requests were being sent.
+     */
+    private static long measuredCpuNanos;
+
+    /**
+     * Latencies are recorded in microseconds, up to a minute.
+     */
+    private static final long HIGHEST_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    /**
+     * A request scheduled to be sent at <code>intendedStart</code>.
+     */
+    private static class Scheduled {
+        final Route route;
+        final long intendedStart;
+        final boolean measured;
+
+        Scheduled(Route route, long intendedStart, boolean measured) {
+            this.route = route;
+            this.intendedStart = intendedStart;
+            this.measured = measured;
+        }
+    }
+
+    /**
+     * One route of the mix, with its request builder and results.
+     */
+    private static class Route {
+        final String name;
+        final int weight;
+        final Function<String, HttpRequest> request;
+        final Histogram latency = new ConcurrentHistogram(HIGHEST_LATENCY_MICROS, 3);
+        final LongAdder errors = new LongAdder();
+        final LongAdder responseBytes = new LongAdder();
+        final LongAdder compressed = new LongAdder();
+
+        Route(String name, int weight, Function<String, HttpRequest> request) {
+            this.name = name;
+            this.weight = weight;
+            this.request = request;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String base = url;
+        Javalin app = null;
+        if (base == null) {
+            ConnectionUtil.resetTestDatabase();
+            try (java.sql.Connection connection = ConnectionUtil.getConnection()) {
+                connection.createStatement().execute("INSERT INTO message (posted_by, message_text, time_posted_epoch) "
+                        + "SELECT 1, 'seed message ' || X, 1669947792 + X FROM SYSTEM_RANGE(2, " + seedMessages + ")");
+            }
+            app = new SocialMediaController().startAPI();
+            app.start(port);
+            base = "http://localhost:" + port;
+        }
+        try {
+            List<Route> routes = parseMix(mix);
+            run(base, routes);
+            print(routes);
+            write(routes, new File(report));
+        } finally {
+            if (app != null)
+                app.stop();
+        }
+    }
+
+    /**
+     * Schedule requests at the target rate for the warmup and measured periods, and wait for every scheduled request
+     * to be answered (or for the drain timeout).
+     */
+    private static void run(String base, List<Route> routes) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        LinkedBlockingQueue<Scheduled> queue = new LinkedBlockingQueue<>();
+        AtomicInteger outstanding = new AtomicInteger();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    while (true) {
+                        Scheduled scheduled = queue.take();
+                        send(client, base, scheduled);
+                        outstanding.decrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "load-client-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+
+        int totalWeight = routes.stream().mapToInt(route -> route.weight).sum();
+        Random random = new Random(seed);
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(seconds);
+        long cpuStart = -1;
+        for (long i = 0; ; i++) {
+            long intendedStart = start + i * interval;
+            if (intendedStart >= end)
+                break;
+            long delay;
+            while ((delay = intendedStart - System.nanoTime()) > 0)
+                LockSupport.parkNanos(delay);
+            if (cpuStart < 0 && intendedStart >= measureFrom)
+                cpuStart = processCpuNanos();
+            outstanding.incrementAndGet();
+            queue.add(new Scheduled(pick(routes, random.nextInt(totalWeight)), intendedStart, intendedStart >= measureFrom));
+        }
+
+        long drainUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(drainSeconds);
+        while (outstanding.get() > 0 && System.nanoTime() < drainUntil)
+            Thread.sleep(10);
+        measuredCpuNanos = processCpuNanos() - cpuStart;
+        if (outstanding.get() > 0)
+            System.out.printf("%d requests were still outstanding after %ds; the server can't sustain %d req/s%n",
+                    outstanding.get(), drainSeconds, rate);
+        for (Thread worker : workers)
+            worker.interrupt();
+    }
+
+    private static long processCpuNanos() {
+        return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+    }
+
+    private static void send(HttpClient client, String base, Scheduled scheduled) {
+        Route route = scheduled.route;
+        boolean failed;
+        long bytes = 0;
+        boolean compressed = false;
+        try {
+            HttpResponse<InputStream> response = client.send(route.request.apply(base), HttpResponse.BodyHandlers.ofInputStream());
+            // The client doesn't decompress, so this counts the bytes that crossed the wire.
+            try (InputStream body = response.body()) {
+                bytes = body.transferTo(OutputStream.nullOutputStream());
+            }
+            compressed = response.headers().firstValue("Content-Encoding").isPresent();
+            failed = response.statusCode() >= 300;
+        } catch (Exception e) {
+            failed = true;
+        }
+        if (!scheduled.measured)
+            return;
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - scheduled.intendedStart);
+        route.latency.recordValue(Math.min(micros, HIGHEST_LATENCY_MICROS));
+        route.responseBytes.add(bytes);
+        if (compressed)
+            route.compressed.increment();
+        if (failed)
+            route.errors.increment();
+    }
+
+    private static Route pick(List<Route> routes, int ticket) {
+        for (Route route : routes) {
+            ticket -= route.weight;
+            if (ticket < 0)
+                return route;
+        }
+        return routes.get(routes.size() - 1);
+    }
+
+    /**
+     * @param mix Comma separated <code>route:weight</code> pairs.
+     * @return The routes of the mix with a positive weight.
+     */
+    static List<Route> parseMix(String mix) {
+        List<Route> routes = new ArrayList<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0)
+                routes.add(new Route(parts[0].trim(), weight, requestFor(parts[0].trim())));
+        }
+        if (routes.isEmpty())
+            throw new IllegalArgumentException("load.mix has no routes with a positive weight.");
+        return routes;
+    }
+
+    private static Function<String, HttpRequest> requestFor(String route) {
+        AtomicInteger usernames = new AtomicInteger();
+        String runID = Long.toString(System.currentTimeMillis(), 36);
+        switch (route) {
+            case "register":
+                return base -> json(base + "/register", "POST",
+                        "{\"username\":\"load-" + runID + "-" + usernames.incrementAndGet() + "\",\"password\":\"password\"}");
+            case "login":
+                return base -> json(base + "/login", "POST", "{\"username\":\"testuser1\",\"password\":\"password\"}");
+            case "getMessages":
+                return base -> request(base + "/messages").build();
+            case "getMessage":
+                return base -> request(base + "/messages/" + randomMessageID()).build();
+            case "postMessage":
+                return base -> json(base + "/messages", "POST",
+                        "{\"posted_by\":1,\"message_text\":\"load message\",\"time_posted_epoch\":1669947792}");
+            case "patchMessage":
+                return base -> json(base + "/messages/" + randomMessageID(), "PATCH", "{\"message_text\":\"patched message\"}");
+            case "deleteMessage":
+                return base -> request(base + "/messages/" + randomMessageID()).DELETE().build();
+            case "getAccountMessages":
+                return base -> request(base + "/accounts/1/messages").build();
+            default:
+                throw new IllegalArgumentException("Unknown route '" + route + "' in load.mix; expected one of " + String.join(", ", ROUTES) + ".");
+        }
+    }
+
+    private static HttpRequest.Builder request(String uri) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(uri));
+        if (acceptEncoding != null)
+            request.header("Accept-Encoding", acceptEncoding);
+        return request;
+    }
+
+    private static HttpRequest json(String uri, String method, String body) {
+        return request(uri)
+                .method(method, HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+    }
+
+    private static int randomMessageID() {
+        return 1 + ThreadLocalRandom.current().nextInt(seedMessages);
+    }
+
+    private static void print(List<Route> routes) {
+        System.out.printf("rate=%d req/s  concurrency=%d  measured=%ds  Accept-Encoding=%s%n", rate, concurrency, seconds,
+                acceptEncoding == null ? "(none)" : acceptEncoding);
+        System.out.printf("%-20s %8s %8s %10s %10s %10s %10s %10s %10s %12s %10s%n",
+                "route", "count", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "bytes/resp", "compressed");
+        long requests = 0;
+        long bytes = 0;
+        for (Route route : routes) {
+            Histogram h = route.latency;
+            System.out.printf("%-20s %8d %8d %10.1f %10.2f %10.2f %10.2f %10.2f %10.2f %12.0f %10d%n",
+                    route.name, h.getTotalCount(), route.errors.sum(), (double) h.getTotalCount() / seconds,
+                    h.getValueAtPercentile(50) / 1000.0, h.getValueAtPercentile(90) / 1000.0,
+                    h.getValueAtPercentile(99) / 1000.0, h.getValueAtPercentile(99.9) / 1000.0, h.getMaxValue() / 1000.0,
+                    meanResponseBytes(route), route.compressed.sum());
+            requests += h.getTotalCount();
+            bytes += route.responseBytes.sum();
+        }
+        System.out.printf("response bandwidth %.1f KB/s, process CPU %.3f ms/request%n",
+                bytes / 1024.0 / seconds, cpuMillisPerRequest(requests));
+    }
+
+    private static double meanResponseBytes(Route route) {
+        long count = route.latency.getTotalCount();
+        return count == 0 ? 0 : (double) route.responseBytes.sum() / count;
+    }
+
+    private static double cpuMillisPerRequest(long requests) {
+        return requests == 0 ? 0 : measuredCpuNanos / 1e6 / requests;
+    }
+
+    private static void write(List<Route> routes, File file) throws Exception {
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("rate", rate);
+        config.put("concurrency", concurrency);
+        config.put("seconds", seconds);
+        config.put("warmupSeconds", warmupSeconds);
+        config.put("mix", mix);
+        config.put("acceptEncoding", acceptEncoding);
+        Map<String, Object> results = new LinkedHashMap<>();
+        long requests = 0;
+        long bytes = 0;
+        for (Route route : routes) {
+            Histogram h = route.latency;
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("count", h.getTotalCount());
+            result.put("errors", route.errors.sum());
+            result.put("throughput", (double) h.getTotalCount() / seconds);
+            result.put("meanMicros", h.getMean());
+            result.put("p50Micros", h.getValueAtPercentile(50));
+            result.put("p90Micros", h.getValueAtPercentile(90));
+            result.put("p99Micros", h.getValueAtPercentile(99));
+            result.put("p999Micros", h.getValueAtPercentile(99.9));
+            result.put("maxMicros", h.getMaxValue());
+            result.put("meanResponseBytes", meanResponseBytes(route));
+            result.put("compressedResponses", route.compressed.sum());
+            results.put(route.name, result);
+            requests += h.getTotalCount();
+            bytes += route.responseBytes.sum();
+        }
+        Map<String, Object> totals = new LinkedHashMap<>();
+        totals.put("responseBytesPerSecond", (double) bytes / seconds);
+        totals.put("cpuMillisPerRequest", cpuMillisPerRequest(requests));
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("config", config);
+        document.put("routes", results);
+        document.put("totals", totals);
+        if (file.getParentFile() != null)
+            file.getParentFile().mkdirs();
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, document);
+        System.out.println("Wrote " + file);
+    }
+}
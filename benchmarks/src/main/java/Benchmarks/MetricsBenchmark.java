@@ -0,0 +1,63 @@
+package Benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Util.LatencyHistogram;
+import Util.Metrics;
+
+/**
+ * Cost of recording request and DAO timings, to compare against the latency of the operations being timed (see
+ * <code>DaoBenchmark</code>). Runs with several threads, since contention is where recording would get expensive.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class MetricsBenchmark {
+    LatencyHistogram histogram = new LatencyHistogram();
+    Metrics.Timer timer = Metrics.daoTimer("BenchmarkDAO", "timed");
+
+    /**
+     * The clock reads every timing needs, for reference.
+     */
+    @Benchmark
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    @Benchmark
+    public void recordHistogram() {
+        histogram.record(ThreadLocalRandom.current().nextLong(10_000_000));
+    }
+
+    /**
+     * What each DAO method adds: a clock read at the start and a timer record at the end.
+     */
+    @Benchmark
+    public void recordDaoTimer() {
+        timer.recordSince(System.nanoTime());
+    }
+
+    /**
+     * What each request adds in the after handler.
+     */
+    @Benchmark
+    public void recordRequest() {
+        Metrics.recordRequest("GET", "/messages/{id}", 200, ThreadLocalRandom.current().nextLong(10_000_000));
+    }
+}
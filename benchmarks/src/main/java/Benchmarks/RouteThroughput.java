@@ -0,0 +1,116 @@
+package Benchmarks;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import Controller.SocialMediaController;
+import DAO.MessageDAO;
+import Model.Message;
+import Util.ConnectionPool;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+/**
+ * Measures closed-loop requests/sec for individual routes against an in-process server backed by the H2 database in
+ * <code>./h2</code>. Run it from the project root so the seed script and database paths resolve.
+ *
+ * Tunable with system properties: <code>bench.port</code>, <code>bench.threads</code> (a comma separated list of
+ * client counts to run each route at), <code>bench.routes</code> (any of <code>post,get</code>),
+ * <code>bench.seconds</code>, <code>bench.warmupSeconds</code> and <code>bench.seedMessages</code>.
+ */
+public class RouteThroughput {
+    private static final int port = Integer.getInteger("bench.port", 8080);
+    private static final String threads = System.getProperty("bench.threads", "16");
+    private static final String routes = System.getProperty("bench.routes", "post,get");
+    private static final int seconds = Integer.getInteger("bench.seconds", 10);
+    private static final int warmupSeconds = Integer.getInteger("bench.warmupSeconds", 3);
+    private static final int seedMessages = Integer.getInteger("bench.seedMessages", 1000);
+
+    public static void main(String[] args) throws Exception {
+        ConnectionUtil.resetTestDatabase();
+        MessageDAO messageDAO = new MessageDAO();
+        for (int i = 0; i < seedMessages; i++)
+            messageDAO.insertMessage(new Message(1, "seed message " + i, 1669947792L + i));
+
+        Javalin app = new SocialMediaController().startAPI();
+        app.start(port);
+        try {
+            String base = "http://localhost:" + port;
+            for (String count : threads.split(",")) {
+                int concurrency = Integer.parseInt(count.trim());
+                if (routes.contains("post"))
+                    run("POST /messages", concurrency, () -> HttpRequest.newBuilder(URI.create(base + "/messages"))
+                            .POST(HttpRequest.BodyPublishers.ofString("{\"posted_by\":1,\"message_text\":\"benchmark\",\"time_posted_epoch\":1669947792}"))
+                            .header("Content-Type", "application/json")
+                            .build());
+                if (routes.contains("get"))
+                    run("GET /messages/{id}", concurrency, () -> HttpRequest.newBuilder(URI.create(base + "/messages/" + (1 + ThreadLocalRandom.current().nextInt(seedMessages))))
+                            .build());
+            }
+        } finally {
+            app.stop();
+        }
+        ConnectionPool pool = ConnectionUtil.getPool();
+        System.out.printf("statement cache: %d hits, %d misses%n", pool.getStatementCacheHits(), pool.getStatementCacheMisses());
+    }
+
+    /**
+     * Drive one route from <code>concurrency</code> closed-loop clients and print the measured throughput.
+     * @param name The label printed with the result.
+     * @param concurrency The number of clients sending requests back to back.
+     * @param request Builds the next request to send.
+     * @return The measured requests/sec.
+     */
+    public static double run(String name, int concurrency, Supplier<HttpRequest> request) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        AtomicBoolean measuring = new AtomicBoolean(false);
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder completed = new LongAdder();
+        LongAdder failed = new LongAdder();
+
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            Thread worker = new Thread(() -> {
+                while (running.get()) {
+                    try {
+                        HttpResponse<Void> response = client.send(request.get(), HttpResponse.BodyHandlers.discarding());
+                        if (measuring.get()) {
+                            if (response.statusCode() == 200)
+                                completed.increment();
+                            else
+                                failed.increment();
+                        }
+                    } catch (Exception e) {
+                        if (measuring.get())
+                            failed.increment();
+                    }
+                }
+            });
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+
+        Thread.sleep(warmupSeconds * 1000L);
+        measuring.set(true);
+        long start = System.nanoTime();
+        Thread.sleep(seconds * 1000L);
+        measuring.set(false);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        running.set(false);
+        for (Thread worker : workers)
+            worker.join();
+
+        double throughput = completed.sum() / elapsed;
+        System.out.printf("%-24s threads=%-4d %10.1f req/s  (%d failed)%n", name, concurrency, throughput, failed.sum());
+        return throughput;
+    }
+}
@@ -0,0 +1,131 @@
+package Benchmarks;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Model.Message;
+import Service.SearchIndex;
+
+/**
+ * Build time and query latency of the in-memory {@link SearchIndex}, without the database read that turns its IDs
+ * into messages. The seeded databases' text is too uniform to search, so the messages are generated: 8 to 20 words
+ * each, drawn from a 20,000 word vocabulary with a Zipf distribution, so a few words are in most messages and most
+ * words are rare, as in real text.
+ *
+ * The query benchmarks sample every call, so run them with the default <code>SampleTime</code> mode to read p99 and
+ * p99.9 from the percentiles JMH prints.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+    private static final int VOCABULARY = 20_000;
+    private static final int LIMIT = 100;
+
+    @Param({"100000", "1000000"})
+    int messages;
+
+    Message[] corpus;
+    SearchIndex index;
+
+    // The most common word, a mid-frequency word, a rare word, and pairs of them.
+    List<String> common = SearchIndex.terms("w0");
+    List<String> medium = SearchIndex.terms("w100");
+    List<String> rare = SearchIndex.terms("w10000");
+    List<String> commonAndMedium = SearchIndex.terms("w0 w100");
+    List<String> mediumAndMedium = SearchIndex.terms("w100 w101");
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        corpus = generate(messages);
+        index = build(corpus);
+    }
+
+    /**
+     * Indexing every message, as the service does at startup.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public SearchIndex build() {
+        return build(corpus);
+    }
+
+    @Benchmark
+    public int[] searchCommon() {
+        return index.search(common, LIMIT);
+    }
+
+    @Benchmark
+    public int[] searchMedium() {
+        return index.search(medium, LIMIT);
+    }
+
+    @Benchmark
+    public int[] searchRare() {
+        return index.search(rare, LIMIT);
+    }
+
+    @Benchmark
+    public int[] searchCommonAndMedium() {
+        return index.search(commonAndMedium, LIMIT);
+    }
+
+    /**
+     * Two words that seldom appear together, so most of the rarer word's list is checked before the page fills.
+     */
+    @Benchmark
+    public int[] searchMediumAndMedium() {
+        return index.search(mediumAndMedium, LIMIT);
+    }
+
+    private static SearchIndex build(Message[] corpus) {
+        SearchIndex index = new SearchIndex();
+        for (Message message : corpus)
+            index.add(message);
+        return index;
+    }
+
+    private static Message[] generate(int messages) {
+        // Cumulative Zipf weights, so a word is drawn with one binary search.
+        double[] cumulative = new double[VOCABULARY];
+        double total = 0;
+        for (int i = 0; i < VOCABULARY; i++) {
+            total += 1.0 / (i + 1);
+            cumulative[i] = total;
+        }
+        Random random = new Random(42);
+        Message[] corpus = new Message[messages];
+        StringBuilder text = new StringBuilder();
+        for (int id = 1; id <= messages; id++) {
+            text.setLength(0);
+            int words = 8 + random.nextInt(13);
+            for (int i = 0; i < words; i++) {
+                int word = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+                text.append(i == 0 ? "w" : " w").append(word < 0 ? -word - 1 : word);
+            }
+            corpus[id - 1] = new Message(id, 1 + id % 1000, text.toString(), 1669947792L + id);
+        }
+        return corpus;
+    }
+}
@@ -0,0 +1,125 @@
+package Benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import Model.Account;
+import Model.Message;
+import Util.JsonMapping;
+import Util.MessageCodec;
+
+/**
+ * Latency of the Jackson (de)serialization every request and response goes through. Each benchmark runs the API's
+ * shared pipeline (see <code>JsonMapping</code>): cached readers and writers, Blackbird accessors, and request bodies
+ * parsed straight from their bytes. The <code>baseline</code> benchmarks run the path it replaced, a default
+ * <code>ObjectMapper</code> fed the body decoded to a String, for comparison. Run with <code>-prof gc</code> to
+ * compare allocation per operation as well. The <code>Codec</code> benchmarks run <code>MessageCodec</code>, which the
+ * API uses for messages in place of Jackson. Needs no database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+    ObjectMapper om = new ObjectMapper();
+    ObjectReader messageReader = JsonMapping.readerFor(Message.class);
+    ObjectReader accountReader = JsonMapping.readerFor(Account.class);
+    Message message = new Message(1, 1, "test message 1", 1669947792L);
+    Account account = new Account(1, "testuser1", "password");
+    byte[] messageJson = "{\"posted_by\":1,\"message_text\":\"test message 1\",\"time_posted_epoch\":1669947792}".getBytes(StandardCharsets.UTF_8);
+    byte[] accountJson = "{\"username\":\"testuser1\",\"password\":\"password\"}".getBytes(StandardCharsets.UTF_8);
+    List<Message> page = new ArrayList<>();
+
+    public SerializationBenchmark() {
+        for (int i = 1; i <= 100; i++)
+            page.add(new Message(i, 1, "test message " + i, 1669947792L + i));
+    }
+
+    @Benchmark
+    public String writeMessage() {
+        return JsonMapping.INSTANCE.toJsonString(message, Message.class);
+    }
+
+    @Benchmark
+    public byte[] writeMessageCodec() {
+        return MessageCodec.write(message);
+    }
+
+    @Benchmark
+    public String writeMessageBaseline() throws JsonProcessingException {
+        return om.writeValueAsString(message);
+    }
+
+    @Benchmark
+    public Message readMessage() throws IOException {
+        return messageReader.readValue(new ByteArrayInputStream(messageJson));
+    }
+
+    @Benchmark
+    public Message readMessageCodec() throws IOException {
+        return MessageCodec.read(messageJson);
+    }
+
+    @Benchmark
+    public Message readMessageBaseline() throws JsonProcessingException {
+        return om.readValue(new String(messageJson, StandardCharsets.UTF_8), Message.class);
+    }
+
+    @Benchmark
+    public String writeAccount() {
+        return JsonMapping.INSTANCE.toJsonString(account, Account.class);
+    }
+
+    @Benchmark
+    public String writeAccountBaseline() throws JsonProcessingException {
+        return om.writeValueAsString(account);
+    }
+
+    @Benchmark
+    public Account readAccount() throws IOException {
+        return accountReader.readValue(new ByteArrayInputStream(accountJson));
+    }
+
+    @Benchmark
+    public Account readAccountBaseline() throws JsonProcessingException {
+        return om.readValue(new String(accountJson, StandardCharsets.UTF_8), Account.class);
+    }
+
+    /**
+     * A default-sized page of a listing.
+     */
+    @Benchmark
+    public String writeMessagePage() {
+        return JsonMapping.INSTANCE.toJsonString(page, page.getClass());
+    }
+
+    @Benchmark
+    public byte[] writeMessagePageCodec() {
+        return MessageCodec.write(page);
+    }
+
+    @Benchmark
+    public String writeMessagePageBaseline() throws JsonProcessingException {
+        return om.writeValueAsString(page);
+    }
+}
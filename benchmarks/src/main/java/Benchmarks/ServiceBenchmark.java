@@ -0,0 +1,87 @@
+package Benchmarks;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Model.Message;
+import Service.AccountService;
+import Service.MessageService;
+
+/**
+ * Latency of the <code>MessageService</code> validation paths, which decide whether a request reaches the database at
+ * all. Runs against the smallest seeded database, since only the unknown poster check queries it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceBenchmark {
+    private static final String LONG_TEXT = "x".repeat(300);
+
+    MessageService messageService;
+    AccountService accountService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        BenchmarkDatabase.open(1000);
+        accountService = new AccountService();
+        messageService = new MessageService(accountService);
+    }
+
+    @Benchmark
+    public Object postMessageEmptyText() {
+        return postMessage(new Message(1, "", 1669947792L));
+    }
+
+    @Benchmark
+    public Object postMessageTooLong() {
+        return postMessage(new Message(1, LONG_TEXT, 1669947792L));
+    }
+
+    /**
+     * Unknown posters aren't cached, so every rejection looks the account up.
+     */
+    @Benchmark
+    public Object postMessageUnknownPoster() {
+        return postMessage(new Message(Integer.MAX_VALUE, "benchmark message", 1669947792L));
+    }
+
+    @Benchmark
+    public Object patchMessageTooLong() {
+        try {
+            return messageService.patchMessageByID(1, new Message(1, LONG_TEXT, 1669947792L));
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    /**
+     * Known posters are served from the account ID cache after the first check.
+     */
+    @Benchmark
+    public boolean posterExists() {
+        return accountService.userExists(1);
+    }
+
+    private Object postMessage(Message message) {
+        try {
+            return messageService.postMessage(message);
+        } catch (Exception e) {
+            return e;
+        }
+    }
+}
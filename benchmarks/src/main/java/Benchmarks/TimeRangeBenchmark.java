@@ -0,0 +1,90 @@
+package Benchmarks;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import DAO.MessageDAO;
+import DAO.MessageQuery;
+import Model.Message;
+
+/**
+ * Latency of <code>since</code>/<code>until</code> listings against a seeded database of each size. The seeded
+ * messages are one second apart, so a window's position is random but the number of messages in it doesn't depend on
+ * the size of the table: latency that grows with the table means the range isn't being served by an index.
+ *
+ * Every call is sampled, so read p99 from the percentiles JMH prints.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TimeRangeBenchmark {
+    private static final long FIRST_EPOCH = 1669947792L;
+    private static final int LIMIT = 100;
+    /**
+     * A window holding a few pages of messages across all accounts.
+     */
+    private static final int GLOBAL_WINDOW = 1_000;
+    /**
+     * The messages of one account in a window, which spans this many of its messages whatever the number of accounts.
+     */
+    private static final int ACCOUNT_WINDOW_MESSAGES = 20;
+
+    @Param({"100000", "10000000"})
+    int messages;
+
+    MessageDAO messageDAO;
+    int accounts;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        BenchmarkDatabase.open(messages);
+        messageDAO = new MessageDAO();
+        accounts = BenchmarkDatabase.accounts(messages);
+    }
+
+    /**
+     * The first page of a window of all messages, in time order.
+     */
+    @Benchmark
+    public List<Message> globalRange() {
+        long since = FIRST_EPOCH + ThreadLocalRandom.current().nextInt(messages - GLOBAL_WINDOW);
+        MessageQuery query = new MessageQuery(LIMIT);
+        query.order = MessageQuery.Order.TIME_POSTED_EPOCH;
+        query.since = since;
+        query.until = since + GLOBAL_WINDOW;
+        return messageDAO.getMessages(query);
+    }
+
+    /**
+     * One account's messages in a window, in time order.
+     */
+    @Benchmark
+    public List<Message> accountRange() {
+        int window = accounts * ACCOUNT_WINDOW_MESSAGES;
+        long since = FIRST_EPOCH + ThreadLocalRandom.current().nextInt(Math.max(1, messages - window));
+        MessageQuery query = new MessageQuery(LIMIT);
+        query.postedBy = 1 + ThreadLocalRandom.current().nextInt(accounts);
+        query.order = MessageQuery.Order.TIME_POSTED_EPOCH;
+        query.since = since;
+        query.until = since + window;
+        return messageDAO.getMessages(query);
+    }
+}
@@ -1,64 +1,263 @@
 package Controller;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.gzip.GzipHandler;
+import org.eclipse.jetty.util.VirtualThreads;
+import org.eclipse.jetty.util.compression.CompressionPool;
+import org.eclipse.jetty.util.compression.DeflaterPool;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
 
 import io.javalin.Javalin;
 import io.javalin.http.Context;
 
+import DAO.MessageQuery;
+
 import Model.Account;
 import Model.Message;
 
 import Service.AccountService;
 import Service.MessageService;
+import Service.SessionService;
+import Service.TimelineService;
+
+import Util.ConnectionPool;
+import Util.ConnectionUtil;
+import Util.DbExecutor;
+import Util.JsonMapping;
+import Util.MessageCodec;
+import Util.Metrics;
+import Util.SlowQueryLog;
 
 import Exceptions.AccountExceptions.*;
 import Exceptions.MessageExceptions.*;
 
 public class SocialMediaController {
+    /**
+     * The request attribute holding the ID of the user proven by the request's session token.
+     */
+    private static final String SESSION_ACCOUNT_ID = "session_account_id";
+    /**
+     * The request attribute holding the <code>System.nanoTime()</code> at which the request started.
+     */
+    private static final String REQUEST_START = "request_start";
+
     MessageService messageService;
     AccountService accountService;
-    ObjectMapper om;
+    SessionService sessionService;
+    TimelineService timelineService;
+    ObjectReader accountReader;
+    ObjectReader messagesReader;
+    ObjectReader idsReader;
 
     /**
      * Constructor for the social media controller.
      */
     public SocialMediaController(){
-        this.messageService = new MessageService();
         this.accountService = new AccountService();
-        this.om = new ObjectMapper();
+        this.messageService = new MessageService(accountService);
+        this.timelineService = messageService.timelineService;
+        this.sessionService = new SessionService(System.getProperty("session.secret"), Long.getLong("session.ttlSeconds", 3600));
+        this.accountReader = JsonMapping.readerFor(Account.class);
+        this.messagesReader = JsonMapping.readerFor(Message[].class);
+        this.idsReader = JsonMapping.readerFor(int[].class);
     }
 
     /**
-     * Initializes the API and exposes its routes.
+     * Initializes the API and exposes its routes. Requests run on virtual threads if the
+     * <code>server.virtualThreads</code> system property is true.
+     *
+     * Responses to <code>GET</code> requests of at least <code>server.compression.minSize</code> bytes (default 1500,
+     * about one packet; negative disables compression) are gzipped at deflate level
+     * <code>server.compression.level</code> (default 6) for clients that accept it.
      * @return A Javalin app object which defines the behavior of the Javalin controller.
      */
     public Javalin startAPI() {
-        Javalin app = Javalin.create();
+        return startAPI(Boolean.getBoolean("server.virtualThreads"));
+    }
+
+    /**
+     * Initializes the API and exposes its routes.
+     * @param useVirtualThreads Whether each request runs on its own virtual thread rather than on Jetty's pool of
+     * platform threads. Requires a JDK with virtual threads (21+, see the <code>virtual-threads</code> build profile).
+     * @return A Javalin app object which defines the behavior of the Javalin controller.
+     * @throws IllegalStateException Virtual threads were requested but the JDK doesn't support them.
+     */
+    public Javalin startAPI(boolean useVirtualThreads) {
+        if (useVirtualThreads && !VirtualThreads.areSupported())
+            throw new IllegalStateException("Virtual threads were requested, but are not supported by Java " + System.getProperty("java.version") + ".");
+        Javalin app = Javalin.create(config -> {
+            config.jsonMapper(JsonMapping.INSTANCE);
+            // Jetty's gzip handler replaces Javalin's compression, which ignores q-values in Accept-Encoding, sends no
+            // Vary header, and applies its size threshold to a response's first write rather than the whole response.
+            config.compression.none();
+            int minCompressedSize = Integer.getInteger("server.compression.minSize", 1500);
+            if (minCompressedSize >= 0) {
+                int level = Integer.getInteger("server.compression.level", 6);
+                config.jetty.contextHandlerConfig(handler -> handler.insertHandler(gzipHandler(minCompressedSize, level)));
+            }
+            if (useVirtualThreads)
+                config.jetty.server(SocialMediaController::virtualThreadServer);
+        });
+
+        app.before(context -> context.attribute(REQUEST_START, System.nanoTime()));
+        app.before(this::authenticate);
+        app.after(this::recordRequest);
+        app.exception(InvalidSessionException.class, (e, context) -> context.status(401));
+        app.events(events -> events.serverStopped(messageService::close));
 
         app.post("/register", this::register);
         app.post("/login", this::login);
         app.get("/messages", this::getAllMessages);
+        app.get("/messages/search", this::searchMessages);
         app.get("/messages/{id}", this::getMessageByID);
         app.post("/messages", this::postMessage);
+        app.post("/messages/batch", this::postMessages);
+        app.post("/messages/lookup", this::lookUpMessages);
         app.patch("/messages/{id}", this::patchMessageByID);
         app.delete("/messages/{id}", this::deleteMessageByID);
         app.get("/accounts/{account_id}/messages", this::getAllMessagesByAccountID);
+        app.get("/accounts/{account_id}/feed", this::getFeed);
+        app.get("/accounts/{account_id}/following", this::getFollowees);
+        app.put("/accounts/{account_id}/following/{followee_id}", this::follow);
+        app.delete("/accounts/{account_id}/following/{followee_id}", this::unfollow);
+        app.get("/metrics", this::getMetrics);
+        app.get("/admin/slow-queries", this::getSlowQueries);
         
         return app;
     }
 
+    /**
+     * @param minSize The size below which responses are sent uncompressed, since compressing them saves too little.
+     * @param level The deflate level, from 1 (fastest) to 9 (smallest).
+     * @return A handler that gzips responses as they are written, so a streamed listing stays streamed.
+     */
+    private static GzipHandler gzipHandler(int minSize, int level) {
+        GzipHandler gzipHandler = new GzipHandler();
+        gzipHandler.setMinGzipSize(minSize);
+        gzipHandler.setDeflaterPool(new DeflaterPool(CompressionPool.DEFAULT_CAPACITY, level, true));
+        return gzipHandler;
+    }
+
+    /**
+     * @return A Jetty server whose thread pool hands every request to a new virtual thread. The pool's platform threads
+     * only run Jetty's selectors and acceptors, so request throughput is no longer capped by the pool's size.
+     */
+    private static Server virtualThreadServer() {
+        QueuedThreadPool threadPool = new QueuedThreadPool(250, 8, 60_000);
+        threadPool.setName("JettyServerThreadPool");
+        threadPool.setUseVirtualThreads(true);
+        return new Server(threadPool);
+    }
+
+    /**
+     * Before handler that validates the session token sent as <code>Authorization: Bearer &lt;token&gt;</code>, if
+     * any, and records the user it proves. Tokens are validated in memory, without touching the database. Logging in
+     * and registering don't read the session, and are how a client with an expired token gets a new one, so the token
+     * isn't checked there.
+     * @param context The Javalin Context object manages information about both the HTTP request and response.
+     * @throws InvalidSessionException The token is invalid or has expired, which is answered with a 401.
+     */
+    private void authenticate(Context context) throws InvalidSessionException {
+        if (context.path().equals("/login") || context.path().equals("/register"))
+            return;
+        String authorization = context.header("Authorization");
+        if (authorization != null && authorization.startsWith("Bearer "))
+            context.attribute(SESSION_ACCOUNT_ID, sessionService.authenticate(authorization.substring("Bearer ".length())));
+    }
+
+    /**
+     * After handler that records the request's latency and status code against the route that answered it. Runs once
+     * the response is complete, including for requests answered asynchronously or by an exception handler.
+     * @param context The Javalin Context object manages information about both the HTTP request and response.
+     */
+    private void recordRequest(Context context) {
+        Long start = context.attribute(REQUEST_START);
+        if (start == null)
+            return;
+        // Requests that never reached an endpoint, because no route matched or the session check rejected them, share
+        // one series, so that probing random URLs can't create unbounded series. Javalin reports a description rather
+        // than a path for them.
+        String route = context.endpointHandlerPath();
+        if (!route.startsWith("/"))
+            route = "unmatched";
+        Metrics.recordRequest(context.method().name(), route, context.status().getCode(), System.nanoTime() - start);
+    }
+
+    /**
+     * Handler for the <code>/metrics</code> <code>GET</code> endpoint. Exposes request, DAO, connection pool, cache
+     * and executor metrics in the Prometheus text format.
+     * @param context The Javalin Context object manages information about both the HTTP request and response.
+     */
+    private void getMetrics(Context context) {
+        StringBuilder out = new StringBuilder();
+        Metrics.write(out);
+
+        ConnectionPool pool = ConnectionUtil.getPool();
+        Metrics.write(out, "db_pool_active_connections", "Connections borrowed from the pool.", "gauge", pool.getActiveCount());
+        Metrics.write(out, "db_pool_idle_connections", "Connections idle in the pool.", "gauge", pool.getIdleCount());
+        Metrics.write(out, "db_pool_waiting_threads", "Threads waiting to borrow a connection.", "gauge", pool.getWaitingCount());
+        Metrics.write(out, "db_pool_max_connections", "The most connections the pool opens.", "gauge", pool.getMaxSize());
+        Metrics.write(out, "db_statement_cache_hits_total", "Prepared statements reused from a connection's cache.", "counter", pool.getStatementCacheHits());
+        Metrics.write(out, "db_statement_cache_misses_total", "Prepared statements that had to be prepared.", "counter", pool.getStatementCacheMisses());
+
+        Metrics.write(out, "message_cache_size", "Messages in the message cache.", "gauge", messageService.messageCache.size());
+        Metrics.write(out, "message_cache_hits_total", "Message lookups served from the cache.", "counter", messageService.messageCache.hits());
+        Metrics.write(out, "message_cache_misses_total", "Message lookups that missed the cache.", "counter", messageService.messageCache.misses());
+        Metrics.write(out, "message_cache_evictions_total", "Messages evicted from the cache.", "counter", messageService.messageCache.evictions());
+        Metrics.write(out, "account_id_cache_size", "Account IDs known to exist.", "gauge", accountService.accountIdCache.size());
+        Metrics.write(out, "account_id_cache_hits_total", "Account checks served from the cache.", "counter", accountService.accountIdCache.hits());
+        Metrics.write(out, "account_id_cache_misses_total", "Account checks that missed the cache.", "counter", accountService.accountIdCache.misses());
+
+        DbExecutor executor = messageService.dbExecutor;
+        if (executor != null) {
+            Metrics.write(out, "db_executor_queue_depth", "Database tasks waiting for a thread.", "gauge", executor.getQueueDepth());
+            Metrics.write(out, "db_executor_active_tasks", "Database tasks running.", "gauge", executor.getActiveCount());
+            Metrics.write(out, "db_executor_submitted_total", "Database tasks accepted.", "counter", executor.getSubmittedCount());
+            Metrics.write(out, "db_executor_rejected_total", "Database tasks rejected because the executor was saturated.", "counter", executor.getRejectedCount());
+            Metrics.write(out, "db_executor_queue_wait_seconds_total", "Time database tasks spent waiting for a thread.", "counter", executor.getTotalWaitNanos() / 1e9);
+            Metrics.write(out, "db_executor_queue_wait_seconds_max", "The longest a database task waited for a thread.", "gauge", executor.getMaxWaitNanos() / 1e9);
+        }
+        context.status(200).contentType("text/plain; version=0.0.4; charset=utf-8").result(out.toString());
+    }
+
+    /**
+     * Handler for the <code>/admin/slow-queries</code> <code>GET</code> endpoint. Lists the most recent slow and failed
+     * statements, newest first, or 404 if statements aren't being timed.
+     * @param context The Javalin Context object manages information about both the HTTP request and response.
+     */
+    private void getSlowQueries(Context context) {
+        SlowQueryLog slowQueryLog = ConnectionUtil.getPool().getSlowQueryLog();
+        if (slowQueryLog == null)
+            context.status(404);
+        else
+            context.status(200).json(slowQueryLog.getEntries());
+    }
+
     /**
      * Handler for the <code>/register</code> <code>POST</code> endpoint.
      * @param context The Javalin Context object manages information about both the HTTP request and response.
      */
     private void register(Context context) {
         try {
-            Account account = om.readValue(context.body(), Account.class);
+            Account account = accountReader.readValue(context.bodyInputStream());
             context.status(200).json(accountService.register(account));
         } catch (InvalidUsernameException | InvalidPasswordException | UserAlreadyExistsException e) {
             context.status(400);
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             System.out.println("Could not parse request body.");
             e.printStackTrace();
         }
@@ -70,11 +269,13 @@ public class SocialMediaController {
      */
     private void login(Context context) {
         try {
-            Account account = om.readValue(context.body(), Account.class);
-            context.status(200).json(accountService.login(account));
+            Account account = accountReader.readValue(context.bodyInputStream());
+            Account loggedInAccount = accountService.login(account);
+            context.header("X-Session-Token", sessionService.issue(loggedInAccount.account_id));
+            context.status(200).json(loggedInAccount);
         } catch (InvalidLoginException e) {
             context.status(401);
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             System.out.println("Could not parse request body.");
             e.printStackTrace();
         }
@@ -86,22 +287,93 @@ public class SocialMediaController {
      */
     private void postMessage(Context context) {
         try {
-            Message message = om.readValue(context.body(), Message.class);
-            context.status(200).json(messageService.postMessage(message));
-        } catch (InvalidMessageTextException | InvalidUserIDException e) {
-            context.status(400);
-        } catch (JsonProcessingException e) {
+            Message message = MessageCodec.read(context.bodyAsBytes());
+            respond(context, messageService.postMessageAsync(message, context.attribute(SESSION_ACCOUNT_ID)),
+                    postedMessage -> respondWithMessage(context.status(200), postedMessage));
+        } catch (IOException e) {
             System.out.println("Could not parse request body.");
             e.printStackTrace();
         }
     }
 
     /**
-     * Handler for the <code>/messages</code> <code>GET</code> endpoint.
+     * Handler for the <code>/messages</code> <code>GET</code> endpoint. With an <code>ids</code> query parameter, a
+     * comma separated list of message IDs, responds with those messages instead of a page.
      * @param context The Javalin Context object manages information about both the HTTP request and response.
      */
     private void getAllMessages(Context context) {
-        context.status(200).json(messageService.getAllMessages());
+        String ids = context.queryParam("ids");
+        if (ids == null) {
+            respondWithPage(context, null);
+            return;
+        }
+        try {
+            respondWithMessagesByIDs(context, ids.isBlank() ? new int[0]
+                    : Arrays.stream(ids.split(",")).mapToInt(id -> Integer.parseInt(id.trim())).toArray());
+        } catch (NumberFormatException e) {
+            context.status(400);
+        }
+    }
+
+    /**
+     * Handler for the <code>/messages/lookup</code> <code>POST</code> endpoint, for lists of IDs too long for a query
+     * string. Takes a JSON array of message IDs and responds like <code>GET /messages?ids=</code>.
+     * @param context The Javalin Context object manages information about both the HTTP request and response.
+     */
+    private void lookUpMessages(Context context) {
+        try {
+            int[] ids = readIDs(context.bodyInputStream());
+            if (ids == null) {
+                context.status(400);
+                return;
+            }
+            respondWithMessagesByIDs(context, ids);
+        } catch (IOException e) {
+            System.out.println("Could not parse request body: " + e.getMessage());
+            context.status(400);
+        }
+    }
+
+    /**
+     * Read a JSON array of message IDs, stopping one past {@link MessageService#MAX_BATCH_SIZE} so that an oversized
+     * body is rejected without being read in full.
+     * @param body The request body.
+     * @return The IDs, or null if the body is JSON <code>null</code>.
+     * @throws IOException The body isn't a JSON array of integers.
+     */
+    private int[] readIDs(InputStream body) throws IOException {
+        try (JsonParser parser = idsReader.createParser(body)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.VALUE_NULL)
+                return null;
+            if (token != JsonToken.START_ARRAY)
+                throw new JsonParseException(parser, "Expected an array of message IDs.");
+            int[] ids = new int[16];
+            int count = 0;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY && count <= MessageService.MAX_BATCH_SIZE) {
+                if (token != JsonToken.VALUE_NUMBER_INT)
+                    throw new JsonParseException(parser, "Expected a message ID.");
+                if (count == ids.length)
+                    ids = Arrays.copyOf(ids, count * 2);
+                ids[count++] = parser.getIntValue();
+            }
+            return Arrays.copyOf(ids, count);
+        }
+    }
+
+    /**
+     * Respond with the messages of the given IDs, in the same order, with <code>null</code> for each ID that has no
+     * message.
+     * @param context The Javalin Context object manages information about both the HTTP request and response.
+     * @param ids The IDs of the messages, which may repeat.
+     */
+    private void respondWithMessagesByIDs(Context context, int[] ids) {
+        respond(context, messageService.getMessagesByIDsAsync(ids), messages -> {
+            if (messages == null)
+                context.status(500);
+            else
+                respondWithMessages(context.status(200), messages);
+        });
     }
 
     /**
@@ -110,11 +382,40 @@ public class SocialMediaController {
      */
     private void getMessageByID(Context context) {
         int id = Integer.parseInt(context.pathParam("id"));
-        Message message = messageService.getMessageByID(id);
-        if (message == null)
-            context.status(200);
-        else
-            context.status(200).json(message);
+        String etag = messageService.messageVersions.etag(id);
+        if (notModified(context, etag))
+            return;
+        respond(context, messageService.getMessageByIDAsync(id), message -> {
+            context.header("ETag", etag);
+            if (message == null)
+                context.status(200);
+            else
+                respondWithMessage(context.status(200), message);
+        });
+    }
+
+    /**
+     * Handler for the <code>/messages/search</code> <code>GET</code> endpoint. Responds with the newest messages that
+     * contain every word of the <code>q</code> query parameter, at most <code>limit</code> of them.
+     * @param context The Javalin Context object manages information about both the HTTP request and response.
+     */
+    private void searchMessages(Context context) {
+        String q = context.queryParam("q");
+        if (q == null || q.isBlank()) {
+            context.status(400);
+            return;
+        }
+        try {
+            String limit = context.queryParam("limit");
+            respond(context, messageService.searchMessagesAsync(q, limit == null ? null : Integer.valueOf(limit)), messages -> {
+                if (messages == null)
+                    context.status(500);
+                else
+                    respondWithMessages(context.status(200), messages);
+            });
+        } catch (NumberFormatException e) {
+            context.status(400);
+        }
     }
 
     /**
@@ -123,11 +424,36 @@ public class SocialMediaController {
      */
     private void deleteMessageByID(Context context) {
         int id = Integer.parseInt(context.pathParam("id"));
-        Message deletedMessage = messageService.deleteMessageByID(id);
-        if (deletedMessage == null)
-            context.status(200);
-        else
-            context.status(200).json(deletedMessage);
+        respond(context, messageService.deleteMessageByIDAsync(id), deletedMessage -> {
+            if (deletedMessage == null)
+                context.status(200);
+            else
+                respondWithMessage(context.status(200), deletedMessage);
+        });
+    }
+
+    /**
+     * Handler for the <code>/messages/batch</code> <code>POST</code> endpoint. Takes a JSON array of messages and
+     * responds with a result for each, in order: the created message, or why it was rejected.
+     * @param context The Javalin Context object manages information about both the HTTP request and response.
+     */
+    private void postMessages(Context context) {
+        try {
+            Message[] messages = messagesReader.readValue(context.bodyInputStream());
+            if (messages == null) {
+                context.status(400);
+                return;
+            }
+            respond(context, messageService.postMessagesAsync(Arrays.asList(messages), context.attribute(SESSION_ACCOUNT_ID)), results -> {
+                if (results == null)
+                    context.status(500);
+                else
+                    context.status(200).json(results);
+            });
+        } catch (IOException e) {
+            System.out.println("Could not parse request body.");
+            e.printStackTrace();
+        }
     }
 
     /**
@@ -137,11 +463,10 @@ public class SocialMediaController {
     private void patchMessageByID(Context context) {
         try {
             int id = Integer.parseInt(context.pathParam("id"));
-            Message message = om.readValue(context.body(), Message.class);
-            context.status(200).json(messageService.patchMessageByID(id, message));
-        } catch (InvalidMessageTextException | InvalidMessageIDException e) {
-            context.status(400);
-        } catch (JsonProcessingException e) {
+            Message message = MessageCodec.read(context.bodyAsBytes());
+            respond(context, messageService.patchMessageByIDAsync(id, message),
+                    updatedMessage -> respondWithMessage(context.status(200), updatedMessage));
+        } catch (IOException e) {
             System.out.println("Could not parse request body.");
             e.printStackTrace();
         }
@@ -153,6 +478,225 @@ public class SocialMediaController {
      */
     private void getAllMessagesByAccountID(Context context) {
         int id = Integer.parseInt(context.pathParam("account_id"));
-        context.status(200).json(messageService.getAllMessagesByAccountID(id));
+        String etag = messageService.timelineVersions.etag(id);
+        if (notModified(context, etag))
+            return;
+        context.header("ETag", etag);
+        respondWithPage(context, id);
+    }
+
+    /**
+     * Answer a conditional <code>GET</code> whose <code>If-None-Match</code> header names the current version with
+     * <code>304 Not Modified</code>. The tag must be taken before the resource is read, so that a write racing with the
+     * read can only make the response look older than it is. That also means existence is unknown here, so
+     * <code>If-None-Match: *</code> is not honoured and gets a full response.
+     * @param context The Javalin Context object manages information about both the HTTP request and response.
+     * @param etag The resource's current entity tag.
+     * @return True if the client's copy is current and the response has been written.
+     */
+    private static boolean notModified(Context context, String etag) {
+        String ifNoneMatch = context.header("If-None-Match");
+        if (ifNoneMatch == null)
+            return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            // If-None-Match uses weak comparison, so a weakened copy of the tag matches too.
+            if (candidate.startsWith("W/"))
+                candidate = candidate.substring(2);
+            if (candidate.equals(etag)) {
+                context.status(304).header("ETag", etag);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Handler for the <code>/accounts/{account_id}/feed</code> <code>GET</code> endpoint. Responds with one page of the
+     * messages posted by the users the user follows, newest first. The cursor for the next page, if there is one, is
+     * sent in the <code>X-Next-Cursor</code> header and passed back as <code>after</code>.
+     * @param context The Javalin Context object manages information about both the HTTP request and response.
+     */
+    private void getFeed(Context context) {
+        int id = Integer.parseInt(context.pathParam("account_id"));
+        try {
+            String limit = context.queryParam("limit");
+            respond(context, timelineService.getFeedAsync(id, context.queryParam("after"),
+                    limit == null ? null : Integer.valueOf(limit)), page -> {
+                if (page == null) {
+                    context.status(500);
+                    return;
+                }
+                if (page.next_cursor != null)
+                    context.header("X-Next-Cursor", page.next_cursor);
+                respondWithMessages(context.status(200), page.messages);
+            });
+        } catch (NumberFormatException e) {
+            context.status(400);
+        }
+    }
+
+    /**
+     * Handler for the <code>/accounts/{account_id}/following</code> <code>GET</code> endpoint. Responds with the IDs of
+     * the users the user follows.
+     * @param context The Javalin Context object manages information about both the HTTP request and response.
+     */
+    private void getFollowees(Context context) {
+        int id = Integer.parseInt(context.pathParam("account_id"));
+        respond(context, timelineService.getFolloweesAsync(id), followees -> {
+            if (followees == null)
+                context.status(500);
+            else
+                context.status(200).json(followees);
+        });
+    }
+
+    /**
+     * Handler for the <code>/accounts/{account_id}/following/{followee_id}</code> <code>PUT</code> endpoint.
+     * @param context The Javalin Context object manages information about both the HTTP request and response.
+     */
+    private void follow(Context context) {
+        int id = Integer.parseInt(context.pathParam("account_id"));
+        int followeeID = Integer.parseInt(context.pathParam("followee_id"));
+        respond(context, timelineService.followAsync(id, followeeID, context.attribute(SESSION_ACCOUNT_ID)),
+                followed -> context.status(followed ? 200 : 500));
+    }
+
+    /**
+     * Handler for the <code>/accounts/{account_id}/following/{followee_id}</code> <code>DELETE</code> endpoint.
+     * @param context The Javalin Context object manages information about both the HTTP request and response.
+     */
+    private void unfollow(Context context) {
+        int id = Integer.parseInt(context.pathParam("account_id"));
+        int followeeID = Integer.parseInt(context.pathParam("followee_id"));
+        respond(context, timelineService.unfollowAsync(id, followeeID, context.attribute(SESSION_ACCOUNT_ID)),
+                unfollowed -> context.status(unfollowed ? 200 : 500));
+    }
+
+    /**
+     * Respond with one page of messages, selected by the <code>since</code>, <code>until</code>, <code>limit</code>,
+     * <code>after</code> and <code>order</code> query parameters. <code>since</code> and <code>until</code> bound
+     * <code>time_posted_epoch</code>, inclusive and exclusive respectively. The page is sent as a JSON array, and the cursor for the next page, if there is one, is sent in
+     * the <code>X-Next-Cursor</code> header. With <code>stream=true</code> the listing is streamed instead.
+     * @param context The Javalin Context object manages information about both the HTTP request and response.
+     * @param accountID The ID of the user whose messages will be listed, or null to list all messages.
+     */
+    private void respondWithPage(Context context, Integer accountID) {
+        if ("true".equals(context.queryParam("stream"))) {
+            respondWithStream(context, accountID);
+            return;
+        }
+        try {
+            String limit = context.queryParam("limit");
+            respond(context, messageService.getMessagesPageAsync(accountID, longQueryParam(context, "since"),
+                    longQueryParam(context, "until"), context.queryParam("order"), context.queryParam("after"),
+                    limit == null ? null : Integer.valueOf(limit)), page -> {
+                if (page == null) {
+                    context.status(500);
+                    return;
+                }
+                if (page.next_cursor != null)
+                    context.header("X-Next-Cursor", page.next_cursor);
+                respondWithMessages(context.status(200), page.messages);
+            });
+        } catch (NumberFormatException e) {
+            context.status(400);
+        }
+    }
+
+    /**
+     * @param context The Javalin Context object manages information about both the HTTP request and response.
+     * @param name The name of the query parameter.
+     * @return The query parameter as a number, or null if it is absent.
+     * @throws NumberFormatException The query parameter isn't a number.
+     */
+    private static Long longQueryParam(Context context, String name) {
+        String value = context.queryParam(name);
+        return value == null ? null : Long.valueOf(value);
+    }
+
+    /**
+     * Respond once a service call completes. Calls already complete, because they ran on the request thread or were
+     * served from a cache, respond immediately. Otherwise the request is suspended with <code>context.future</code>,
+     * freeing the request thread while the database executor does the work.
+     * @param context The Javalin Context object manages information about both the HTTP request and response.
+     * @param result The result of the service call.
+     * @param onSuccess Writes the response from the call's result.
+     */
+    private <T> void respond(Context context, CompletableFuture<T> result, Consumer<T> onSuccess) {
+        if (result.isDone())
+            complete(context, result, onSuccess);
+        else
+            context.future(() -> result.handle((value, e) -> {
+                complete(context, result, onSuccess);
+                return null;
+            }));
+    }
+
+    private <T> void complete(Context context, CompletableFuture<T> result, Consumer<T> onSuccess) {
+        try {
+            onSuccess.accept(result.join());
+        } catch (CompletionException e) {
+            context.status(statusFor(e.getCause()));
+        }
+    }
+
+    /**
+     * @param e The exception a service call failed with.
+     * @return The status code that reports the failure: 503 when the database executor is saturated, 400 for an
+     * invalid request, and 500 for anything unexpected.
+     */
+    private static int statusFor(Throwable e) {
+        if (e instanceof RejectedExecutionException)
+            return 503;
+        if (e instanceof InvalidMessageTextException || e instanceof InvalidUserIDException
+                || e instanceof InvalidMessageIDException || e instanceof InvalidPageException
+                || e instanceof InvalidFollowException || e instanceof InvalidBatchException)
+            return 400;
+        System.out.println("Request failed: " + e);
+        return 500;
+    }
+
+    /**
+     * Respond with a message as JSON, written by {@link MessageCodec} rather than Jackson.
+     * @param context The Javalin Context object manages information about both the HTTP request and response.
+     * @param message The message to respond with.
+     */
+    private static void respondWithMessage(Context context, Message message) {
+        context.contentType("application/json").result(MessageCodec.write(message));
+    }
+
+    /**
+     * Respond with a list of messages as a JSON array, written by {@link MessageCodec} rather than Jackson.
+     * @param context The Javalin Context object manages information about both the HTTP request and response.
+     * @param messages The messages to respond with.
+     */
+    private static void respondWithMessages(Context context, List<Message> messages) {
+        context.contentType("application/json").result(MessageCodec.write(messages));
+    }
+
+    /**
+     * Respond with every message in a listing, optionally bounded by <code>limit</code>, writing each message to the
+     * response as a JSON array element while the database results are still being read. Memory use doesn't grow with
+     * the size of the listing, and the first messages reach the client before the query has finished.
+     * @param context The Javalin Context object manages information about both the HTTP request and response.
+     * @param accountID The ID of the user whose messages will be listed, or null to list all messages.
+     */
+    private void respondWithStream(Context context, Integer accountID) {
+        try {
+            String limit = context.queryParam("limit");
+            MessageQuery query = messageService.getStreamQuery(accountID, longQueryParam(context, "since"),
+                    longQueryParam(context, "until"), context.queryParam("order"), context.queryParam("after"),
+                    limit == null ? null : Integer.valueOf(limit));
+            context.status(200).contentType("application/json");
+            MessageCodec.ArrayWriter writer = new MessageCodec.ArrayWriter(context.outputStream());
+            boolean complete = messageService.streamMessages(query, writer::write);
+            // A listing cut short by a database error must stay visibly incomplete rather than being closed off.
+            writer.close(complete);
+        } catch (InvalidPageException | NumberFormatException e) {
+            context.status(400);
+        } catch (IOException e) {
+            System.out.println("Could not stream response: " + e.getMessage());
+        }
     }
 }
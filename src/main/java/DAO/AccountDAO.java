@@ -4,11 +4,19 @@ import java.sql.*;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 import Model.Account;
 import Util.ConnectionUtil;
+import Util.Metrics;
 
 public class AccountDAO {
+    private static final Metrics.Timer getAccountByIDTimer = Metrics.daoTimer("AccountDAO", "getAccountByID");
+    private static final Metrics.Timer getExistingAccountIDsTimer = Metrics.daoTimer("AccountDAO", "getExistingAccountIDs");
+    private static final Metrics.Timer getAccountByUsernameTimer = Metrics.daoTimer("AccountDAO", "getAccountByUsername");
+    private static final Metrics.Timer createAccountTimer = Metrics.daoTimer("AccountDAO", "createAccount");
+    private static final Metrics.Timer updatePasswordTimer = Metrics.daoTimer("AccountDAO", "updatePassword");
 
     /**
      * <strong>SQL:</strong> "SELECT * FROM account WHERE account_id = <code>id</code>"
@@ -16,8 +24,8 @@ public class AccountDAO {
      * @return An <code>Account</code> object of the user's data, or null if the operation failed.
      */
     public Account getAccountByID(int id) {
-        Connection connection = ConnectionUtil.getConnection();
-        try {
+        long start = System.nanoTime();
+        try (Connection connection = ConnectionUtil.getConnection()) {
             String sql = "SELECT * FROM account WHERE account_id = ?";
             PreparedStatement preparedStatement = connection.prepareStatement(sql);
             preparedStatement.setInt(1, id);
@@ -32,49 +40,53 @@ public class AccountDAO {
             }
         } catch (SQLException e) {
             System.out.println(e.getMessage());
+            getAccountByIDTimer.error();
+        } finally {
+            getAccountByIDTimer.recordSince(start);
         }
         return null;
     }
 
     /**
-     * <strong>SQL:</strong> "SELECT * FROM account WHERE username = <code>username</code>"
-     * @param username The username of the user whose account will be returned.
-     * @return An <code>Account</code> object of the user's data, or null if the operation failed.
+     * <strong>SQL:</strong> "SELECT account_id FROM account WHERE account_id = ANY(<code>ids</code>)"
+     * @param ids The IDs of the users to look for.
+     * @return A list of the given IDs that belong to a user, in no particular order, or null if the operation failed.
      */
-    public Account getAccountByUsername(String username) {
-        Connection connection = ConnectionUtil.getConnection();
-        try {
-            String sql = "SELECT * FROM account WHERE username = ?";
+    public List<Integer> getExistingAccountIDs(int[] ids) {
+        List<Integer> existingIDs = new ArrayList<Integer>();
+        long start = System.nanoTime();
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            String sql = "SELECT account_id FROM account WHERE account_id = ANY(?)";
             PreparedStatement preparedStatement = connection.prepareStatement(sql);
-            preparedStatement.setString(1, username);
+            Integer[] boxedIDs = new Integer[ids.length];
+            for (int i = 0; i < ids.length; i++)
+                boxedIDs[i] = ids[i];
+            preparedStatement.setArray(1, connection.createArrayOf("INTEGER", boxedIDs));
             ResultSet rs = preparedStatement.executeQuery();
-            if (rs.next()){
-                Account account = new Account(
-                    rs.getInt("account_id"),
-                    rs.getString("username"),
-                    rs.getString("password")
-                );
-                return account;
+            while (rs.next()){
+                existingIDs.add(rs.getInt("account_id"));
             }
+            return existingIDs;
         } catch (SQLException e) {
             System.out.println(e.getMessage());
+            getExistingAccountIDsTimer.error();
+        } finally {
+            getExistingAccountIDsTimer.recordSince(start);
         }
         return null;
     }
-    
+
     /**
-     * <strong>SQL:</strong> "SELECT * FROM account WHERE username = <code>username</code> AND password = <code>password</code>"
+     * <strong>SQL:</strong> "SELECT * FROM account WHERE username = <code>username</code>"
      * @param username The username of the user whose account will be returned.
-     * @param password The password of the user whose account will be returned.
      * @return An <code>Account</code> object of the user's data, or null if the operation failed.
      */
-    public Account getAccountByUsernameAndPassword(String username, String password) {
-        Connection connection = ConnectionUtil.getConnection();
-        try {
-            String sql = "SELECT * FROM account WHERE username = ? AND password = ?";
+    public Account getAccountByUsername(String username) {
+        long start = System.nanoTime();
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            String sql = "SELECT * FROM account WHERE username = ?";
             PreparedStatement preparedStatement = connection.prepareStatement(sql);
             preparedStatement.setString(1, username);
-            preparedStatement.setString(2, password);
             ResultSet rs = preparedStatement.executeQuery();
             if (rs.next()){
                 Account account = new Account(
@@ -86,29 +98,61 @@ public class AccountDAO {
             }
         } catch (SQLException e) {
             System.out.println(e.getMessage());
+            getAccountByUsernameTimer.error();
+        } finally {
+            getAccountByUsernameTimer.recordSince(start);
         }
         return null;
     }
-
+    
     /**
      * <strong>SQL:</strong> "INSERT INTO account (username, password) VALUES (<code>account.username</code>, <code>account.password</code>)"
      * @param account The account data of the user that will be created.
      * @return An <code>Account</code> object of the new user's data, or null if the operation failed.
      */
     public Account createAccount(Account account) {
-        Connection connection = ConnectionUtil.getConnection();
-        try {
+        long start = System.nanoTime();
+        try (Connection connection = ConnectionUtil.getConnection()) {
             String sql = "INSERT INTO account (username, password) VALUES (?, ?)";
-            PreparedStatement preparedStatement = connection.prepareStatement(sql);
+            PreparedStatement preparedStatement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
             preparedStatement.setString(1, account.username);
             preparedStatement.setString(2, account.password);
             int updatedRows = preparedStatement.executeUpdate();
             if (updatedRows > 0) {
-                return this.getAccountByUsername(account.username);
+                ResultSet generatedKeys = preparedStatement.getGeneratedKeys();
+                if (generatedKeys.next()) {
+                    return new Account(generatedKeys.getInt(1), account.username, account.password);
+                }
             }
         } catch (SQLException e) {
             System.out.println(e.getMessage());
+            createAccountTimer.error();
+        } finally {
+            createAccountTimer.recordSince(start);
         }
         return null;
     }
+
+    /**
+     * <strong>SQL:</strong> "UPDATE account SET password = <code>password</code> WHERE account_id = <code>id</code>"
+     * @param id The ID of the user whose stored password will be replaced.
+     * @param password The new stored password hash.
+     * @return A boolean indicating whether the account was updated.
+     */
+    public boolean updatePassword(int id, String password) {
+        long start = System.nanoTime();
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            String sql = "UPDATE account SET password = ? WHERE account_id = ?";
+            PreparedStatement preparedStatement = connection.prepareStatement(sql);
+            preparedStatement.setString(1, password);
+            preparedStatement.setInt(2, id);
+            return preparedStatement.executeUpdate() > 0;
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            updatePasswordTimer.error();
+        } finally {
+            updatePasswordTimer.recordSince(start);
+        }
+        return false;
+    }
 }
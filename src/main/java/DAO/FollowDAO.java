@@ -0,0 +1,204 @@
+package DAO;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import Util.ConnectionUtil;
+import Util.Metrics;
+
+public class FollowDAO {
+    private static final Metrics.Timer followTimer = Metrics.daoTimer("FollowDAO", "follow");
+    private static final Metrics.Timer unfollowTimer = Metrics.daoTimer("FollowDAO", "unfollow");
+    private static final Metrics.Timer getFollowersTimer = Metrics.daoTimer("FollowDAO", "getFollowers");
+    private static final Metrics.Timer getFolloweesTimer = Metrics.daoTimer("FollowDAO", "getFollowees");
+    private static final Metrics.Timer countFollowersTimer = Metrics.daoTimer("FollowDAO", "countFollowers");
+    private static final Metrics.Timer getPopularAccountsTimer = Metrics.daoTimer("FollowDAO", "getPopularAccounts");
+    private static final Metrics.Timer getFolloweeMessagesTimer = Metrics.daoTimer("FollowDAO", "getFolloweeMessages");
+    private static final Metrics.Timer getRecentMessagesTimer = Metrics.daoTimer("FollowDAO", "getRecentMessages");
+
+    /**
+     * Receives the keys of messages one at a time while a timeline query's results are being read.
+     */
+    public interface TimelineEntryHandler {
+        void handle(int messageID, int postedBy);
+    }
+
+    /**
+     * <strong>SQL:</strong> "MERGE INTO follow KEY (follower_id, followee_id) VALUES (<code>followerID</code>, <code>followeeID</code>)"
+     * @param followerID The ID of the user who follows.
+     * @param followeeID The ID of the user who is followed.
+     * @return True if the user now follows the other, whether or not they did before, or false if the operation failed.
+     */
+    public boolean follow(int followerID, int followeeID) {
+        long start = System.nanoTime();
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            String sql = "MERGE INTO follow KEY (follower_id, followee_id) VALUES (?, ?)";
+            PreparedStatement preparedStatement = connection.prepareStatement(sql);
+            preparedStatement.setInt(1, followerID);
+            preparedStatement.setInt(2, followeeID);
+            preparedStatement.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            followTimer.error();
+        } finally {
+            followTimer.recordSince(start);
+        }
+        return false;
+    }
+
+    /**
+     * <strong>SQL:</strong> "DELETE FROM follow WHERE follower_id = <code>followerID</code> AND followee_id = <code>followeeID</code>"
+     * @param followerID The ID of the user who follows.
+     * @param followeeID The ID of the user who is followed.
+     * @return True if the user no longer follows the other, whether or not they did before, or false if the operation failed.
+     */
+    public boolean unfollow(int followerID, int followeeID) {
+        long start = System.nanoTime();
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            String sql = "DELETE FROM follow WHERE follower_id = ? AND followee_id = ?";
+            PreparedStatement preparedStatement = connection.prepareStatement(sql);
+            preparedStatement.setInt(1, followerID);
+            preparedStatement.setInt(2, followeeID);
+            preparedStatement.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            unfollowTimer.error();
+        } finally {
+            unfollowTimer.recordSince(start);
+        }
+        return false;
+    }
+
+    /**
+     * <strong>SQL:</strong> "SELECT follower_id FROM follow WHERE followee_id = <code>followeeID</code>"
+     * @param followeeID The ID of the user whose followers will be returned.
+     * @return A list of the IDs of the user's followers, or null if the operation failed.
+     */
+    public List<Integer> getFollowers(int followeeID) {
+        return getIDs("SELECT follower_id FROM follow WHERE followee_id = ?", followeeID, getFollowersTimer);
+    }
+
+    /**
+     * <strong>SQL:</strong> "SELECT followee_id FROM follow WHERE follower_id = <code>followerID</code>"
+     * @param followerID The ID of the user whose followees will be returned.
+     * @return A list of the IDs of the users the user follows, or null if the operation failed.
+     */
+    public List<Integer> getFollowees(int followerID) {
+        return getIDs("SELECT followee_id FROM follow WHERE follower_id = ?", followerID, getFolloweesTimer);
+    }
+
+    /**
+     * <strong>SQL:</strong> "SELECT COUNT(*) FROM follow WHERE followee_id = <code>followeeID</code>"
+     * @param followeeID The ID of the user whose followers will be counted.
+     * @return The number of the user's followers, or -1 if the operation failed.
+     */
+    public int countFollowers(int followeeID) {
+        long start = System.nanoTime();
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            String sql = "SELECT COUNT(*) FROM follow WHERE followee_id = ?";
+            PreparedStatement preparedStatement = connection.prepareStatement(sql);
+            preparedStatement.setInt(1, followeeID);
+            ResultSet rs = preparedStatement.executeQuery();
+            rs.next();
+            return rs.getInt(1);
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            countFollowersTimer.error();
+        } finally {
+            countFollowersTimer.recordSince(start);
+        }
+        return -1;
+    }
+
+    /**
+     * <strong>SQL:</strong> "SELECT followee_id FROM follow GROUP BY followee_id HAVING COUNT(*) >= <code>minFollowers</code>"
+     * @param minFollowers The number of followers that makes an account popular.
+     * @return A list of the IDs of the users with at least <code>minFollowers</code> followers, or null if the operation failed.
+     */
+    public List<Integer> getPopularAccounts(int minFollowers) {
+        return getIDs("SELECT followee_id FROM follow GROUP BY followee_id HAVING COUNT(*) >= ?", minFollowers,
+                getPopularAccountsTimer);
+    }
+
+    /**
+     * <strong>SQL:</strong> "SELECT message_id, posted_by FROM message JOIN follow ON posted_by = followee_id WHERE follower_id = <code>followerID</code> AND NOT (posted_by = ANY(<code>excludedPosters</code>)) ORDER BY message_id DESC LIMIT <code>limit</code>"
+     * @param followerID The ID of the user whose followees' messages will be read.
+     * @param excludedPosters The IDs of followees whose messages are left out.
+     * @param limit The maximum number of messages to read.
+     * @param handler Receives each message's keys, newest first.
+     * @return True if every message was read, or false if the operation failed.
+     */
+    public boolean getFolloweeMessages(int followerID, List<Integer> excludedPosters, int limit, TimelineEntryHandler handler) {
+        long start = System.nanoTime();
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            String sql = "SELECT message_id, posted_by FROM message JOIN follow ON posted_by = followee_id "
+                    + "WHERE follower_id = ? AND NOT (posted_by = ANY(?)) ORDER BY message_id DESC LIMIT ?";
+            PreparedStatement preparedStatement = connection.prepareStatement(sql);
+            preparedStatement.setInt(1, followerID);
+            preparedStatement.setArray(2, connection.createArrayOf("INTEGER", excludedPosters.toArray()));
+            preparedStatement.setInt(3, limit);
+            ResultSet rs = preparedStatement.executeQuery();
+            while (rs.next()){
+                handler.handle(rs.getInt("message_id"), rs.getInt("posted_by"));
+            }
+            return true;
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            getFolloweeMessagesTimer.error();
+        } finally {
+            getFolloweeMessagesTimer.recordSince(start);
+        }
+        return false;
+    }
+
+    /**
+     * <strong>SQL:</strong> "SELECT message_id FROM message WHERE posted_by = <code>postedBy</code> ORDER BY message_id DESC LIMIT <code>limit</code>"
+     * @param postedBy The ID of the user whose messages will be read.
+     * @param limit The maximum number of messages to read.
+     * @param handler Receives each message's keys, newest first.
+     * @return True if every message was read, or false if the operation failed.
+     */
+    public boolean getRecentMessages(int postedBy, int limit, TimelineEntryHandler handler) {
+        long start = System.nanoTime();
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            String sql = "SELECT message_id FROM message WHERE posted_by = ? ORDER BY message_id DESC LIMIT ?";
+            PreparedStatement preparedStatement = connection.prepareStatement(sql);
+            preparedStatement.setInt(1, postedBy);
+            preparedStatement.setInt(2, limit);
+            ResultSet rs = preparedStatement.executeQuery();
+            while (rs.next()){
+                handler.handle(rs.getInt("message_id"), postedBy);
+            }
+            return true;
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            getRecentMessagesTimer.error();
+        } finally {
+            getRecentMessagesTimer.recordSince(start);
+        }
+        return false;
+    }
+
+    private static List<Integer> getIDs(String sql, int parameter, Metrics.Timer timer) {
+        List<Integer> ids = new ArrayList<Integer>();
+        long start = System.nanoTime();
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            PreparedStatement preparedStatement = connection.prepareStatement(sql);
+            preparedStatement.setInt(1, parameter);
+            ResultSet rs = preparedStatement.executeQuery();
+            while (rs.next()){
+                ids.add(rs.getInt(1));
+            }
+            return ids;
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            timer.error();
+        } finally {
+            timer.recordSince(start);
+        }
+        return null;
+    }
+}
@@ -1,22 +1,41 @@
 package DAO;
 
+import java.io.IOException;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
 
 import Model.Message;
 import Util.ConnectionUtil;
+import Util.Metrics;
 
 public class MessageDAO {
+    private static final Metrics.Timer getAllMessagesTimer = Metrics.daoTimer("MessageDAO", "getAllMessages");
+    private static final Metrics.Timer getMessageByIDTimer = Metrics.daoTimer("MessageDAO", "getMessageByID");
+    private static final Metrics.Timer insertMessageTimer = Metrics.daoTimer("MessageDAO", "insertMessage");
+    private static final Metrics.Timer insertMessagesTimer = Metrics.daoTimer("MessageDAO", "insertMessages");
+    private static final Metrics.Timer updateMessageByIDTimer = Metrics.daoTimer("MessageDAO", "updateMessageByID");
+    private static final Metrics.Timer deleteMessageByIDTimer = Metrics.daoTimer("MessageDAO", "deleteMessageByID");
+    private static final Metrics.Timer getAllMessagesByAccountIDTimer = Metrics.daoTimer("MessageDAO", "getAllMessagesByAccountID");
+    private static final Metrics.Timer getMessagesByIDsTimer = Metrics.daoTimer("MessageDAO", "getMessagesByIDs");
+    private static final Metrics.Timer getMessagesTimer = Metrics.daoTimer("MessageDAO", "getMessages");
+    private static final Metrics.Timer streamMessagesTimer = Metrics.daoTimer("MessageDAO", "streamMessages");
+
+    /**
+     * Receives messages one at a time while a query's results are being read.
+     */
+    public interface MessageHandler {
+        void handle(Message message) throws IOException;
+    }
 
     /**
      * <strong>SQL:</strong> "SELECT * FROM message"
      * @return An list of <code>Message</code> objects for all messages, or null if the operation failed.
      */
     public List<Message> getAllMessages() {
-        Connection connection = ConnectionUtil.getConnection();
         List<Message> messages = new ArrayList<Message>();
-        try {
+        long start = System.nanoTime();
+        try (Connection connection = ConnectionUtil.getConnection()) {
             String sql = "SELECT * FROM message";
             PreparedStatement preparedStatement = connection.prepareStatement(sql);
             ResultSet rs = preparedStatement.executeQuery();
@@ -32,6 +51,9 @@ public class MessageDAO {
             return messages;
         } catch (SQLException e) {
             System.out.println(e.getMessage());
+            getAllMessagesTimer.error();
+        } finally {
+            getAllMessagesTimer.recordSince(start);
         }
         return null;
     }
@@ -42,8 +64,8 @@ public class MessageDAO {
      * @return A <code>Message</code> object of the message data, or null if the message doesn't exist.
      */
     public Message getMessageByID(int id) {
-        Connection connection = ConnectionUtil.getConnection();
-        try {
+        long start = System.nanoTime();
+        try (Connection connection = ConnectionUtil.getConnection()) {
             String sql = "SELECT * FROM message WHERE message_id = ?";
             PreparedStatement preparedStatement = connection.prepareStatement(sql);
             preparedStatement.setInt(1, id);
@@ -59,6 +81,38 @@ public class MessageDAO {
             }
         } catch (SQLException e) {
             System.out.println(e.getMessage());
+            getMessageByIDTimer.error();
+        } finally {
+            getMessageByIDTimer.recordSince(start);
+        }
+        return null;
+    }
+
+    /**
+     * <strong>SQL:</strong> "SELECT * FROM message WHERE message_id = ANY(<code>ids</code>)"
+     * @param ids The IDs of the messages to be returned.
+     * @return A list of <code>Message</code> objects for the messages that exist, in no particular order, or null if the operation failed.
+     */
+    public List<Message> getMessagesByIDs(int[] ids) {
+        List<Message> messages = new ArrayList<Message>();
+        long start = System.nanoTime();
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            String sql = "SELECT * FROM message WHERE message_id = ANY(?)";
+            PreparedStatement preparedStatement = connection.prepareStatement(sql);
+            Integer[] boxedIDs = new Integer[ids.length];
+            for (int i = 0; i < ids.length; i++)
+                boxedIDs[i] = ids[i];
+            preparedStatement.setArray(1, connection.createArrayOf("INTEGER", boxedIDs));
+            ResultSet rs = preparedStatement.executeQuery();
+            while (rs.next()){
+                messages.add(toMessage(rs));
+            }
+            return messages;
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            getMessagesByIDsTimer.error();
+        } finally {
+            getMessagesByIDsTimer.recordSince(start);
         }
         return null;
     }
@@ -69,8 +123,8 @@ public class MessageDAO {
      * @return A <code>Message</code> object of the new message data, or null if the operation failed.
      */
     public Message insertMessage(Message message) {
-        Connection connection = ConnectionUtil.getConnection();
-        try {
+        long start = System.nanoTime();
+        try (Connection connection = ConnectionUtil.getConnection()) {
             String sql = "INSERT INTO message (posted_by, message_text, time_posted_epoch) VALUES (?, ?, ?)";
             PreparedStatement preparedStatement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
             preparedStatement.setInt(1, message.posted_by);
@@ -87,55 +141,100 @@ public class MessageDAO {
             }
         } catch (SQLException e) {
             System.out.println(e.getMessage());
+            insertMessageTimer.error();
+        } finally {
+            insertMessageTimer.recordSince(start);
         }
         return null;
     }
 
     /**
-     * <strong>SQL:</strong> "UPDATE message SET message_text = <code>message.message_text</code> WHERE message_id = <code>id</code>"
+     * <strong>SQL:</strong> "INSERT INTO message (posted_by, message_text, time_posted_epoch) VALUES (...), (...), ..."
+     * Inserts every message as one JDBC batch committed in a single transaction, and sets each message's
+     * <code>message_id</code> to its generated ID.
+     * @param messages The message data of the messages to be added.
+     * @return The same list of <code>Message</code> objects with their new IDs, or null if the operation failed, in
+     * which case none of the messages were added.
+     */
+    public List<Message> insertMessages(List<Message> messages) {
+        long start = System.nanoTime();
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            connection.setAutoCommit(false);
+            String sql = "INSERT INTO message (posted_by, message_text, time_posted_epoch) VALUES (?, ?, ?)";
+            PreparedStatement preparedStatement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            for (Message message : messages) {
+                preparedStatement.setInt(1, message.posted_by);
+                preparedStatement.setString(2, message.message_text);
+                preparedStatement.setLong(3, message.time_posted_epoch);
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+            ResultSet generatedKeys = preparedStatement.getGeneratedKeys();
+            for (Message message : messages) {
+                if (!generatedKeys.next())
+                    throw new SQLException("Expected " + messages.size() + " generated keys.");
+                message.message_id = generatedKeys.getInt(1);
+            }
+            connection.commit();
+            return messages;
+        } catch (SQLException e) {
+            // Returning the connection to the pool rolls back the uncommitted batch.
+            System.out.println(e.getMessage());
+            insertMessagesTimer.error();
+        } finally {
+            insertMessagesTimer.recordSince(start);
+        }
+        return null;
+    }
+
+    /**
+     * <strong>SQL:</strong> "SELECT * FROM FINAL TABLE (UPDATE message SET message_text = <code>message.message_text</code> WHERE message_id = <code>id</code>)"
+     * Updates the message and reads back the updated row in the same statement and round-trip.
      * @param id The ID of the message to update.
      * @param message A <code>Message</code> object with the new <code>message_text</code>.
      * @return A <code>Message</code> object of the updated message data, or null if the message doesn't exists or the operation failed.
      */
     public Message updateMessageByID(int id, Message message) {
-        Connection connection = ConnectionUtil.getConnection();
-        try {
-            String sql = "UPDATE message SET message_text = ? WHERE message_id = ?";
-            PreparedStatement preparedStatement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+        long start = System.nanoTime();
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            String sql = "SELECT * FROM FINAL TABLE (UPDATE message SET message_text = ? WHERE message_id = ?)";
+            PreparedStatement preparedStatement = connection.prepareStatement(sql);
             preparedStatement.setString(1, message.message_text);
             preparedStatement.setInt(2, id);
-            int updatedRows = preparedStatement.executeUpdate();
-            if (updatedRows > 0) {
-                ResultSet generatedKeys = preparedStatement.getGeneratedKeys();
-                if (generatedKeys.next()) {
-                    int messageID = generatedKeys.getInt(1);
-                    return this.getMessageByID(messageID);
-                }
+            ResultSet rs = preparedStatement.executeQuery();
+            if (rs.next()){
+                return toMessage(rs);
             }
         } catch (SQLException e) {
             System.out.println(e.getMessage());
+            updateMessageByIDTimer.error();
+        } finally {
+            updateMessageByIDTimer.recordSince(start);
         }
         return null;
     }
 
     /**
-     * <strong>SQL:</strong> "DELETE FROM message WHERE message_id = <code>id</code>"
+     * <strong>SQL:</strong> "SELECT * FROM OLD TABLE (DELETE FROM message WHERE message_id = <code>id</code>)"
+     * Deletes the message and reads back the deleted row in the same statement and round-trip.
      * @param id The ID of the message to delete.
      * @return A <code>Message</code> object of the deleted message data, or null if the message doesn't exist or the operation failed.
      */
     public Message deleteMessageByID(int id) {
-        Connection connection = ConnectionUtil.getConnection();
-        Message message = getMessageByID(id);
-        try {
-            String sql = "DELETE FROM message WHERE message_id = ?";
+        long start = System.nanoTime();
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            String sql = "SELECT * FROM OLD TABLE (DELETE FROM message WHERE message_id = ?)";
             PreparedStatement preparedStatement = connection.prepareStatement(sql);
             preparedStatement.setInt(1, id);
-            int updatedRows = preparedStatement.executeUpdate();
-            if (updatedRows > 0) {
-                return message;
+            ResultSet rs = preparedStatement.executeQuery();
+            if (rs.next()){
+                return toMessage(rs);
             }
         } catch (SQLException e) {
             System.out.println(e.getMessage());
+            deleteMessageByIDTimer.error();
+        } finally {
+            deleteMessageByIDTimer.recordSince(start);
         }
         return null;
     }
@@ -146,9 +245,9 @@ public class MessageDAO {
      * @return A list of <code>Message</code> objects for all of a user's messages, or null if the operation failed.
      */
     public List<Message> getAllMessagesByAccountID(int id) {
-        Connection connection = ConnectionUtil.getConnection();
         List<Message> messages = new ArrayList<Message>();
-        try {
+        long start = System.nanoTime();
+        try (Connection connection = ConnectionUtil.getConnection()) {
             String sql = "SELECT * FROM message WHERE posted_by = ?";
             PreparedStatement preparedStatement = connection.prepareStatement(sql);
             preparedStatement.setInt(1, id);
@@ -165,7 +264,83 @@ public class MessageDAO {
             return messages;
         } catch (SQLException e) {
             System.out.println(e.getMessage());
+            getAllMessagesByAccountIDTimer.error();
+        } finally {
+            getAllMessagesByAccountIDTimer.recordSince(start);
         }
         return null;
     }
+
+    /**
+     * <strong>SQL:</strong> "SELECT * FROM message WHERE ... ORDER BY ... LIMIT <code>query.limit</code>"
+     * @param query The filters, ordering, starting key and size of the page to return.
+     * @return A list of <code>Message</code> objects for one page of messages, or null if the operation failed.
+     */
+    public List<Message> getMessages(MessageQuery query) {
+        List<Message> messages = new ArrayList<Message>();
+        long start = System.nanoTime();
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            PreparedStatement preparedStatement = connection.prepareStatement(query.toSql());
+            query.bind(preparedStatement);
+            ResultSet rs = preparedStatement.executeQuery();
+            while (rs.next()){
+                messages.add(toMessage(rs));
+            }
+            return messages;
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            getMessagesTimer.error();
+        } finally {
+            getMessagesTimer.recordSince(start);
+        }
+        return null;
+    }
+
+    /**
+     * <strong>SQL:</strong> "SELECT * FROM message WHERE ... ORDER BY ..."
+     * Streams every message matching the query to <code>handler</code> as it is read, without collecting the
+     * results. The query runs with H2's lazy execution so that rows are produced as they are consumed rather than
+     * materialized up front.
+     * @param query The filters, ordering and starting key of the messages to stream.
+     * @param handler Receives each message in order.
+     * @return True if every message was streamed, or false if the operation failed.
+     * @throws IOException The handler failed to write a message.
+     */
+    public boolean streamMessages(MessageQuery query, MessageHandler handler) throws IOException {
+        long start = System.nanoTime();
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            Statement settings = connection.createStatement();
+            settings.execute("SET LAZY_QUERY_EXECUTION TRUE");
+            try {
+                PreparedStatement preparedStatement = connection.prepareStatement(query.toSql());
+                query.bind(preparedStatement);
+                ResultSet rs = preparedStatement.executeQuery();
+                while (rs.next()){
+                    handler.handle(toMessage(rs));
+                }
+                return true;
+            } finally {
+                settings.execute("SET LAZY_QUERY_EXECUTION FALSE");
+            }
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            streamMessagesTimer.error();
+        } finally {
+            streamMessagesTimer.recordSince(start);
+        }
+        return false;
+    }
+
+    /**
+     * @param rs A result set positioned on a row of the <code>message</code> table.
+     * @return A <code>Message</code> object of the row's data.
+     */
+    private static Message toMessage(ResultSet rs) throws SQLException {
+        return new Message(
+            rs.getInt("message_id"),
+            rs.getInt("posted_by"),
+            rs.getString("message_text"),
+            rs.getLong("time_posted_epoch")
+        );
+    }
 }
@@ -0,0 +1,109 @@
+package DAO;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Describes one page of a keyset-paginated message listing. Rows are returned in ascending order of the chosen
+ * {@link Order}, starting strictly after the given key, so each page is a bounded index range scan no matter how deep
+ * into the table it is.
+ */
+public class MessageQuery {
+
+    /**
+     * The keys a listing can be ordered and paginated by. Ties in <code>time_posted_epoch</code> are broken by
+     * <code>message_id</code> so every row has a unique position.
+     */
+    public enum Order {
+        MESSAGE_ID("message_id"),
+        TIME_POSTED_EPOCH("time_posted_epoch");
+
+        public final String column;
+
+        Order(String column) {
+            this.column = column;
+        }
+
+        /**
+         * @param column The column name of an order, as given in a request.
+         * @return The matching order, or null if there is none.
+         */
+        public static Order fromColumn(String column) {
+            for (Order order : values())
+                if (order.column.equals(column))
+                    return order;
+            return null;
+        }
+    }
+
+    public Integer postedBy;
+    /**
+     * The earliest <code>time_posted_epoch</code> to return, inclusive, or null for no lower bound.
+     */
+    public Long since;
+    /**
+     * The <code>time_posted_epoch</code> to stop before, exclusive, or null for no upper bound.
+     */
+    public Long until;
+    public Order order = Order.MESSAGE_ID;
+    public Integer afterMessageID;
+    public Long afterTimePostedEpoch;
+    public int limit;
+
+    /**
+     * Constructor for a query over all messages.
+     * @param limit The maximum number of messages to return, or 0 for no limit.
+     */
+    public MessageQuery(int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * @return The SQL for this query. Parameters are bound by {@link #bind(PreparedStatement)}.
+     */
+    String toSql() {
+        StringBuilder sql = new StringBuilder("SELECT * FROM message WHERE 1 = 1");
+        if (postedBy != null)
+            sql.append(" AND posted_by = ?");
+        if (since != null)
+            sql.append(" AND time_posted_epoch >= ?");
+        if (until != null)
+            sql.append(" AND time_posted_epoch < ?");
+        if (afterMessageID != null) {
+            if (order == Order.TIME_POSTED_EPOCH)
+                sql.append(" AND time_posted_epoch >= ? AND (time_posted_epoch > ? OR message_id > ?)");
+            else
+                sql.append(" AND message_id > ?");
+        }
+        if (order == Order.TIME_POSTED_EPOCH)
+            sql.append(" ORDER BY time_posted_epoch, message_id");
+        else
+            sql.append(" ORDER BY message_id");
+        if (limit > 0)
+            sql.append(" LIMIT ?");
+        return sql.toString();
+    }
+
+    /**
+     * Bind this query's parameters to a statement prepared from {@link #toSql()}.
+     * @param preparedStatement The statement to bind.
+     */
+    void bind(PreparedStatement preparedStatement) throws SQLException {
+        int index = 1;
+        if (postedBy != null)
+            preparedStatement.setInt(index++, postedBy);
+        if (since != null)
+            preparedStatement.setLong(index++, since);
+        if (until != null)
+            preparedStatement.setLong(index++, until);
+        if (afterMessageID != null) {
+            if (order == Order.TIME_POSTED_EPOCH) {
+                preparedStatement.setLong(index++, afterTimePostedEpoch);
+                preparedStatement.setLong(index++, afterTimePostedEpoch);
+            }
+            preparedStatement.setInt(index++, afterMessageID);
+        }
+        if (limit > 0)
+            preparedStatement.setInt(index, limit);
+    }
+}
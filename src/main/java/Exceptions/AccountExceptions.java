@@ -29,6 +29,15 @@ public class AccountExceptions {
         }
     }
 
+    /**
+     * Is thrown when a session token is malformed, has been tampered with, or has expired.
+     */
+    public static class InvalidSessionException extends Exception {
+        public InvalidSessionException() {
+            super("The session token is invalid or has expired.");
+        }
+    }
+
     /**
      * Is thrown when a given username already exists.
      */
@@ -37,4 +46,16 @@ public class AccountExceptions {
             super("A user with that username already exists.");
         }
     }
+
+    /**
+     * Is thrown when a user tries to follow or unfollow themselves, or an account that doesn't exist.
+     */
+    public static class InvalidFollowException extends Exception {
+        public InvalidFollowException() {
+            super("The follow is invalid.");
+        }
+        public InvalidFollowException(String message) {
+            super(message);
+        }
+    }
 }
@@ -37,4 +37,28 @@ public class MessageExceptions {
             super("A user with ID '" + id + "' does not exist.");
         }
     }
+
+    /**
+     * Is thrown when a paginated listing is requested with an invalid cursor, limit or ordering.
+     */
+    public static class InvalidPageException extends Exception {
+        public InvalidPageException() {
+            super("The requested page is invalid.");
+        }
+        public InvalidPageException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Is thrown when a batch of messages is too large.
+     */
+    public static class InvalidBatchException extends Exception {
+        public InvalidBatchException() {
+            super("The batch is too large.");
+        }
+        public InvalidBatchException(String message) {
+            super(message);
+        }
+    }
 }
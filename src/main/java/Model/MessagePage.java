@@ -0,0 +1,31 @@
+package Model;
+
+import java.util.List;
+
+/**
+ * This is a class that models one page of a paginated message listing.
+ */
+public class MessagePage {
+    /**
+     * The messages on this page, in listing order.
+     */
+    public List<Message> messages;
+    /**
+     * An opaque cursor that returns the next page when passed back as <code>after</code>, or null if this is the
+     * last page.
+     */
+    public String next_cursor;
+
+    public MessagePage(List<Message> messages, String next_cursor) {
+        this.messages = messages;
+        this.next_cursor = next_cursor;
+    }
+
+    public List<Message> getMessages() {
+        return messages;
+    }
+
+    public String getNext_cursor() {
+        return next_cursor;
+    }
+}
@@ -0,0 +1,57 @@
+package Model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * This is a class that models the outcome of one message of a batch: either the message as it was created, or the
+ * reason it was rejected.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MessageResult {
+    /**
+     * The status code the message would have had if it had been posted on its own: 200 or 400.
+     */
+    public int status;
+    /**
+     * The created message, with its generated ID, or null if the message was rejected.
+     */
+    public Message message;
+    /**
+     * Why the message was rejected, or null if it was created.
+     */
+    public String error;
+
+    public MessageResult(int status, Message message, String error) {
+        this.status = status;
+        this.message = message;
+        this.error = error;
+    }
+
+    /**
+     * @param message The created message.
+     * @return The result of a created message.
+     */
+    public static MessageResult created(Message message) {
+        return new MessageResult(200, message, null);
+    }
+
+    /**
+     * @param error Why the message was rejected.
+     * @return The result of a rejected message.
+     */
+    public static MessageResult rejected(String error) {
+        return new MessageResult(400, null, error);
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public Message getMessage() {
+        return message;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,104 @@
+package Service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrent set of account IDs known to exist. Accounts are never deleted, so once an ID is known it stays valid and
+ * the cache never needs invalidating. IDs are auto-incremented and therefore dense, so the set is a bitmap: one bit
+ * per possible ID, allocated lazily in chunks so that memory follows the highest ID actually seen.
+ *
+ * IDs above <code>maxID</code> are never cached, which bounds the bitmap to <code>maxID / 8</code> bytes.
+ */
+public class AccountIdCache {
+    private static final int CHUNK_BITS = 1 << 16;
+    private static final int WORDS_PER_CHUNK = CHUNK_BITS / 64;
+
+    private final int maxID;
+    private final AtomicReferenceArray<AtomicLongArray> chunks;
+    private final LongAdder size = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Constructor for the account ID cache.
+     * @param maxID The highest account ID that will be cached.
+     */
+    public AccountIdCache(int maxID) {
+        this.maxID = maxID;
+        this.chunks = new AtomicReferenceArray<>(maxID / CHUNK_BITS + 1);
+    }
+
+    /**
+     * Check whether an ID is known to exist, counting the lookup as a hit or a miss.
+     * @param id The account ID to check.
+     * @return True if the account is known to exist, or false if it must be looked up.
+     */
+    public boolean contains(int id) {
+        if (id > 0 && id <= maxID) {
+            AtomicLongArray chunk = chunks.get(id / CHUNK_BITS);
+            int bit = id % CHUNK_BITS;
+            if (chunk != null && (chunk.get(bit >>> 6) & (1L << bit)) != 0) {
+                hits.increment();
+                return true;
+            }
+        }
+        misses.increment();
+        return false;
+    }
+
+    /**
+     * Record that an account exists.
+     * @param id The ID of an existing account.
+     */
+    public void add(int id) {
+        if (id <= 0 || id > maxID)
+            return;
+        int chunkIndex = id / CHUNK_BITS;
+        AtomicLongArray chunk = chunks.get(chunkIndex);
+        if (chunk == null) {
+            chunks.compareAndSet(chunkIndex, null, new AtomicLongArray(WORDS_PER_CHUNK));
+            chunk = chunks.get(chunkIndex);
+        }
+        int bit = id % CHUNK_BITS;
+        long mask = 1L << bit;
+        long word;
+        do {
+            word = chunk.get(bit >>> 6);
+            if ((word & mask) != 0)
+                return;
+        } while (!chunk.compareAndSet(bit >>> 6, word, word | mask));
+        size.increment();
+    }
+
+    /**
+     * @return The number of account IDs cached.
+     */
+    public long size() {
+        return size.sum();
+    }
+
+    /**
+     * @return The number of lookups answered by the cache.
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return The number of lookups that had to go to the database.
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The fraction of lookups answered by the cache, or 0 if there have been none.
+     */
+    public double hitRatio() {
+        long hits = this.hits.sum();
+        long total = hits + misses.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
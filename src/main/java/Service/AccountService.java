@@ -1,17 +1,34 @@
 package Service;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 import DAO.AccountDAO;
 import Model.Account;
+import Util.PasswordHasher;
 import Exceptions.AccountExceptions.*;
 
 public class AccountService {
     public AccountDAO accountDAO;
+    /**
+     * IDs of accounts known to exist, so that checking a message's poster rarely needs the database.
+     */
+    public AccountIdCache accountIdCache;
+    /**
+     * Hashes passwords before they are stored, at the cost set by <code>accounts.password.iterations</code>.
+     */
+    public PasswordHasher passwordHasher;
 
     /**
      * Constructor for the account service.
      */
     public AccountService() {
         accountDAO = new AccountDAO();
+        accountIdCache = new AccountIdCache(Integer.getInteger("accounts.idCache.maxId", 1 << 24));
+        passwordHasher = new PasswordHasher(Integer.getInteger("accounts.password.iterations", 100000));
     }
 
     /**
@@ -29,7 +46,11 @@ public class AccountService {
             throw new InvalidPasswordException();
         if (userExists(account.username))
             throw new UserAlreadyExistsException();
-        return accountDAO.createAccount(account);
+        Account createdAccount = accountDAO.createAccount(new Account(account.username, passwordHasher.hash(account.password)));
+        if (createdAccount == null)
+            return null;
+        accountIdCache.add(createdAccount.account_id);
+        return new Account(createdAccount.account_id, account.username, account.password);
     }
 
     /**
@@ -39,19 +60,56 @@ public class AccountService {
      * @throws InvalidLoginException <code>account.username</code> and <code>account.password</code> do not make a valid login.
      */
     public Account login(Account account) throws InvalidLoginException {
-        // If the username and password provided in the request body JSON match a real account existing on the database.
-        Account validAccount = accountDAO.getAccountByUsernameAndPassword(account.username, account.password);
-        if (validAccount == null)
+        // Passwords are stored hashed, so the account is looked up by username only and the password checked here.
+        Account storedAccount = accountDAO.getAccountByUsername(account.username);
+        if (storedAccount == null || !passwordHasher.verify(account.password, storedAccount.password))
             throw new InvalidLoginException();
-        return validAccount;
+        // Upgrade plain text passwords and hashes made at an older cost now that the password is known.
+        if (passwordHasher.needsRehash(storedAccount.password))
+            accountDAO.updatePassword(storedAccount.account_id, passwordHasher.hash(account.password));
+        accountIdCache.add(storedAccount.account_id);
+        return new Account(storedAccount.account_id, storedAccount.username, account.password);
     }
 
     /**
+     * Accounts are never deleted, so IDs found to exist are cached and later checks skip the database.
      * @param id The ID of the user to check.
      * @return A boolean indicating whether a user exists with the given <code>id</code>.
      */
     public boolean userExists(int id) {
-        return accountDAO.getAccountByID(id) != null;
+        if (accountIdCache.contains(id))
+            return true;
+        if (accountDAO.getAccountByID(id) == null)
+            return false;
+        accountIdCache.add(id);
+        return true;
+    }
+
+    /**
+     * Check which of a set of users exist, looking up the ones not already known to exist with a single query.
+     * @param ids The IDs of the users to check.
+     * @return The IDs of the given users that exist, or null if the operation failed.
+     */
+    public Set<Integer> existingUserIDs(Collection<Integer> ids) {
+        Set<Integer> existingIDs = new HashSet<>();
+        int[] unknownIDs = new int[ids.size()];
+        int unknown = 0;
+        for (int id : ids) {
+            if (accountIdCache.contains(id))
+                existingIDs.add(id);
+            else
+                unknownIDs[unknown++] = id;
+        }
+        if (unknown == 0)
+            return existingIDs;
+        List<Integer> foundIDs = accountDAO.getExistingAccountIDs(Arrays.copyOf(unknownIDs, unknown));
+        if (foundIDs == null)
+            return null;
+        for (int id : foundIDs) {
+            accountIdCache.add(id);
+            existingIDs.add(id);
+        }
+        return existingIDs;
     }
 
     /**
@@ -0,0 +1,239 @@
+package Service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+import Model.Message;
+
+/**
+ * A bounded, in-process read-through cache of messages by ID. The cache is split into segments, each a small LRU map
+ * guarded by its own lock, so concurrent readers of different messages rarely contend. Entries also expire after a
+ * fixed time to live.
+ *
+ * Writers must call {@link #invalidate(int)} after changing a message in the database. Each segment counts its
+ * invalidations, and a reader only fills the cache with the value it loaded if no invalidation happened in that
+ * segment while it was loading, so a slow reader can never put back a value that a write has already replaced.
+ */
+public class MessageCache {
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final long ttlNanos;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructor for the message cache.
+     * @param maxSize The most messages kept in the cache.
+     * @param ttlMillis How long a cached message is served before it is loaded again.
+     */
+    public MessageCache(int maxSize, long ttlMillis) {
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        for (int i = 0; i < SEGMENTS; i++)
+            segments[i] = new Segment(Math.max(1, maxSize / SEGMENTS));
+    }
+
+    /**
+     * Get a message from the cache, loading and caching it on a miss.
+     * @param id The ID of the message.
+     * @param loader Loads the message from the database, returning null if it doesn't exist.
+     * @return The message, or null if it doesn't exist.
+     */
+    public Message get(int id, IntFunction<Message> loader) {
+        Message cached = getIfPresent(id);
+        if (cached != null)
+            return cached;
+        return load(id, loader);
+    }
+
+    /**
+     * Load a message and cache it, after a lookup with {@link #getIfPresent(int)} missed.
+     * @param id The ID of the message.
+     * @param loader Loads the message from the database, returning null if it doesn't exist.
+     * @return The message, or null if it doesn't exist.
+     */
+    public Message load(int id, IntFunction<Message> loader) {
+        Segment segment = segmentFor(id);
+        long generation = segment.generation;
+        Message loaded = loader.apply(id);
+        if (loaded != null)
+            segment.putIfUnchanged(id, loaded, generation);
+        return loaded;
+    }
+
+    /**
+     * Load several messages with one call and cache them, after lookups with {@link #getIfPresent(int)} missed.
+     * @param ids The IDs of the messages.
+     * @param loader Loads the messages that exist from the database, returning null if the operation failed.
+     * @return The messages that exist, or null if the operation failed.
+     */
+    public List<Message> loadAll(int[] ids, Function<int[], List<Message>> loader) {
+        long[] generations = new long[ids.length];
+        for (int i = 0; i < ids.length; i++)
+            generations[i] = segmentFor(ids[i]).generation;
+        List<Message> loaded = loader.apply(ids);
+        if (loaded == null)
+            return null;
+        Map<Integer, Long> generationByID = new HashMap<>();
+        for (int i = 0; i < ids.length; i++)
+            generationByID.putIfAbsent(ids[i], generations[i]);
+        for (Message message : loaded) {
+            Long generation = generationByID.get(message.message_id);
+            if (generation != null)
+                segmentFor(message.message_id).putIfUnchanged(message.message_id, message, generation);
+        }
+        return loaded;
+    }
+
+    /**
+     * Get a message only if it is cached, counting the lookup as a hit or a miss.
+     * @param id The ID of the message.
+     * @return The cached message, or null if it isn't cached.
+     */
+    public Message getIfPresent(int id) {
+        Message cached = segmentFor(id).get(id);
+        if (cached != null)
+            hits.increment();
+        else
+            misses.increment();
+        return cached;
+    }
+
+    /**
+     * Remove a message from the cache. Must be called after the message is updated or deleted in the database.
+     * @param id The ID of the changed message.
+     */
+    public void invalidate(int id) {
+        segmentFor(id).invalidate(id);
+    }
+
+    /**
+     * @return The number of messages currently cached.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments)
+            size += segment.size();
+        return size;
+    }
+
+    /**
+     * @return The number of lookups answered by the cache.
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return The number of lookups that had to go to the database.
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The number of messages dropped to keep the cache within its size.
+     */
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return The fraction of lookups answered by the cache, or 0 if there have been none.
+     */
+    public double hitRatio() {
+        long hits = this.hits.sum();
+        long total = hits + misses.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    private Segment segmentFor(int id) {
+        return segments[(id ^ (id >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    /**
+     * A cached message and when it stops being served.
+     */
+    private static class Entry {
+        final Message message;
+        final long expiresAt;
+
+        Entry(Message message, long expiresAt) {
+            this.message = message;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * One lock-guarded LRU partition of the cache.
+     */
+    private class Segment {
+        final ReentrantLock lock = new ReentrantLock();
+        final LinkedHashMap<Integer, Entry> entries;
+        volatile long generation;
+
+        Segment(int capacity) {
+            this.entries = new LinkedHashMap<Integer, Entry>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                    if (size() <= capacity)
+                        return false;
+                    evictions.increment();
+                    return true;
+                }
+            };
+        }
+
+        Message get(int id) {
+            lock.lock();
+            try {
+                Entry entry = entries.get(id);
+                if (entry == null)
+                    return null;
+                if (System.nanoTime() - entry.expiresAt > 0) {
+                    entries.remove(id);
+                    return null;
+                }
+                return entry.message;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void putIfUnchanged(int id, Message message, long expectedGeneration) {
+            lock.lock();
+            try {
+                if (generation == expectedGeneration)
+                    entries.put(id, new Entry(message, System.nanoTime() + ttlNanos));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void invalidate(int id) {
+            lock.lock();
+            try {
+                generation++;
+                entries.remove(id);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return entries.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import DAO.MessageQuery;
+import DAO.MessageQuery.Order;
+import Model.Message;
+import Exceptions.MessageExceptions.InvalidPageException;
+
+/**
+ * Encodes and decodes the opaque cursors handed to clients for keyset pagination. A cursor records the ordering of the
+ * listing and the key of the last message on a page, so clients can't tell (or depend on) how pages are keyed.
+ */
+public class MessageCursor {
+
+    /**
+     * @param order The ordering of the listing the message came from.
+     * @param last The last message on a page.
+     * @return A cursor that continues the listing after <code>last</code>.
+     */
+    public static String encode(Order order, Message last) {
+        String key = order == Order.TIME_POSTED_EPOCH
+                ? "t." + last.time_posted_epoch + "." + last.message_id
+                : "m." + last.message_id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Apply a cursor's ordering and starting key to a query.
+     * @param cursor A cursor created by {@link #encode(Order, Message)}.
+     * @param query The query to continue.
+     * @throws InvalidPageException The cursor is malformed.
+     */
+    public static void decodeInto(String cursor, MessageQuery query) throws InvalidPageException {
+        try {
+            String[] key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\.");
+            if (key.length == 2 && key[0].equals("m")) {
+                query.order = Order.MESSAGE_ID;
+                query.afterMessageID = Integer.parseInt(key[1]);
+                return;
+            }
+            if (key.length == 3 && key[0].equals("t")) {
+                query.order = Order.TIME_POSTED_EPOCH;
+                query.afterTimePostedEpoch = Long.parseLong(key[1]);
+                query.afterMessageID = Integer.parseInt(key[2]);
+                return;
+            }
+        } catch (IllegalArgumentException e) {
+            // Thrown for both bad base64 and bad numbers; reported below.
+        }
+        throw new InvalidPageException("The cursor '" + cursor + "' is invalid.");
+    }
+}
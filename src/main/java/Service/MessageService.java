@@ -1,20 +1,132 @@
 package Service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 import DAO.MessageDAO;
+import DAO.MessageDAO.MessageHandler;
+import DAO.MessageQuery;
+import DAO.MessageQuery.Order;
 import Model.Message;
+import Model.MessagePage;
+import Model.MessageResult;
+import Util.ConnectionUtil;
+import Util.DbExecutor;
 import Exceptions.MessageExceptions.*;
 
 public class MessageService {
+    /**
+     * The page size used when a listing doesn't ask for one.
+     */
+    public static final int DEFAULT_PAGE_SIZE = Integer.getInteger("messages.page.defaultLimit", 100);
+    /**
+     * The largest page size a listing may ask for.
+     */
+    public static final int MAX_PAGE_SIZE = Integer.getInteger("messages.page.maxLimit", 1000);
+    /**
+     * The most messages a batch may hold.
+     */
+    public static final int MAX_BATCH_SIZE = Integer.getInteger("messages.batch.maxSize", 1000);
+
     public MessageDAO messageDAO;
     public AccountService accountService;
+    /**
+     * Group-commits new messages when enabled with <code>messages.writePipeline.enabled</code>, otherwise null.
+     */
+    public MessageWritePipeline writePipeline;
+    /**
+     * Read-through cache in front of {@link MessageDAO#getMessageByID(int)}.
+     */
+    public MessageCache messageCache;
+    /**
+     * Bumped whenever a message is posted, patched or deleted, keyed by <code>message_id</code>.
+     */
+    public VersionStamps messageVersions;
+    /**
+     * Bumped whenever a user's list of messages changes, keyed by <code>posted_by</code>.
+     */
+    public VersionStamps timelineVersions;
+    /**
+     * Inverted index of every message's text, built when the service is created and kept in step with its writes.
+     */
+    public SearchIndex searchIndex;
+    /**
+     * Serializes patches and deletes of the same message, striped by <code>message_id</code>, so the search index
+     * applies them in the order the database did.
+     */
+    private final ReentrantLock[] writeLocks;
+    /**
+     * Runs the <code>...Async</code> methods' database work when enabled with <code>db.executor.enabled</code>,
+     * otherwise null and that work runs on the calling thread.
+     */
+    public DbExecutor dbExecutor;
+    /**
+     * Follows and home feeds, which new messages are fanned out to.
+     */
+    public TimelineService timelineService;
 
     /**
      * Constructor for the message service.
      */
     public MessageService() {
-        messageDAO = new MessageDAO();
-        accountService = new AccountService();
+        this(new AccountService());
+    }
+
+    /**
+     * Constructor for a message service that shares an account service, and so its cache of known accounts.
+     * @param accountService The account service used to check that a message's poster exists.
+     */
+    public MessageService(AccountService accountService) {
+        this.messageDAO = new MessageDAO();
+        this.accountService = accountService;
+        this.messageCache = new MessageCache(Integer.getInteger("messages.cache.maxSize", 10000),
+                Long.getLong("messages.cache.ttlMs", 60000));
+        int versionStripes = Integer.getInteger("messages.versions.stripes", 4096);
+        this.messageVersions = new VersionStamps(versionStripes);
+        this.timelineVersions = new VersionStamps(versionStripes);
+        this.searchIndex = new SearchIndex();
+        this.writeLocks = new ReentrantLock[Integer.highestOneBit(Math.max(1, Integer.getInteger("messages.writeLocks.stripes", 256) - 1)) << 1];
+        for (int i = 0; i < writeLocks.length; i++)
+            writeLocks[i] = new ReentrantLock();
+        buildSearchIndex();
+        if (Boolean.getBoolean("messages.writePipeline.enabled"))
+            writePipeline = new MessageWritePipeline(messageDAO,
+                    Integer.getInteger("messages.writePipeline.batchSize", 128),
+                    Long.getLong("messages.writePipeline.lingerMs", 0),
+                    Integer.getInteger("messages.writePipeline.queueCapacity", 4096));
+        if (Boolean.getBoolean("db.executor.enabled"))
+            dbExecutor = new DbExecutor(Integer.getInteger("db.executor.threads", ConnectionUtil.getPool().getMaxSize()),
+                    Integer.getInteger("db.executor.queueCapacity", 256));
+        this.timelineService = new TimelineService(messageDAO, accountService, dbExecutor);
+    }
+
+    /**
+     * Release the service's background resources. Work already queued on the database executor is finished first,
+     * since it may post to the write pipeline, and messages already queued by the write pipeline are written before
+     * this returns.
+     */
+    public void close() {
+        if (dbExecutor != null) {
+            dbExecutor.shutdown();
+            try {
+                if (!dbExecutor.awaitTermination(Long.getLong("db.executor.shutdownTimeoutMs", 10000), TimeUnit.MILLISECONDS))
+                    System.out.println("Database executor tasks were still running at shutdown.");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (writePipeline != null)
+            writePipeline.close();
     }
 
     /**
@@ -31,9 +143,71 @@ public class MessageService {
      * @return The message with the given <code>id</code>.
      */
     public Message getMessageByID(int id) {
-        return messageDAO.getMessageByID(id);
+        return messageCache.get(id, messageDAO::getMessageByID);
     }
     
+    /**
+     * Get many messages by ID at once.
+     * @param ids The IDs of the messages to be returned, which may repeat.
+     * @return The messages in the order of <code>ids</code>, with null for each ID that has no message, or null if the operation failed.
+     * @throws InvalidBatchException There are more than {@link #MAX_BATCH_SIZE} IDs.
+     */
+    public List<Message> getMessagesByIDs(int[] ids) throws InvalidBatchException {
+        if (ids.length > MAX_BATCH_SIZE)
+            throw new InvalidBatchException("At most " + MAX_BATCH_SIZE + " messages can be fetched at once.");
+        Message[] messages = lookUp(ids);
+        return messages == null ? null : Arrays.asList(messages);
+    }
+
+    /**
+     * Look messages up in the cache, and load the ones it misses with a single query.
+     * @param ids The IDs of the messages, which may repeat.
+     * @return The messages in the order of <code>ids</code>, with null for each ID that has no message, or null if the operation failed.
+     */
+    private Message[] lookUp(int[] ids) {
+        Message[] messages = new Message[ids.length];
+        return loadMissed(ids, messages, lookUpCached(ids, messages));
+    }
+
+    /**
+     * Fill in the messages the cache holds.
+     * @param ids The IDs of the messages, which may repeat.
+     * @param messages Receives the cached message of each ID, at the same index.
+     * @return The distinct IDs the cache missed.
+     */
+    private Set<Integer> lookUpCached(int[] ids, Message[] messages) {
+        Set<Integer> missed = new LinkedHashSet<>();
+        for (int i = 0; i < ids.length; i++) {
+            messages[i] = messageCache.getIfPresent(ids[i]);
+            if (messages[i] == null)
+                missed.add(ids[i]);
+        }
+        return missed;
+    }
+
+    /**
+     * Load the messages the cache missed with a single query, and fill them in.
+     * @param ids The IDs of the messages, which may repeat.
+     * @param messages The cached messages from {@link #lookUpCached(int[], Message[])}.
+     * @param missed The IDs the cache missed.
+     * @return <code>messages</code>, with null for each ID that has no message, or null if the operation failed.
+     */
+    private Message[] loadMissed(int[] ids, Message[] messages, Set<Integer> missed) {
+        if (missed.isEmpty())
+            return messages;
+        List<Message> loaded = messageCache.loadAll(missed.stream().mapToInt(Integer::intValue).toArray(),
+                messageDAO::getMessagesByIDs);
+        if (loaded == null)
+            return null;
+        Map<Integer, Message> byID = new HashMap<>();
+        for (Message message : loaded)
+            byID.put(message.message_id, message);
+        for (int i = 0; i < ids.length; i++)
+            if (messages[i] == null)
+                messages[i] = byID.get(ids[i]);
+        return messages;
+    }
+
     /**
      * Add a new message to the database if the message is valid.
      * @param message The message to be added.
@@ -42,12 +216,86 @@ public class MessageService {
      * @throws InvalidUserIDException There is no user with the given <code>message.posted_by</code> ID.
      */
     public Message postMessage(Message message) throws InvalidMessageTextException, InvalidUserIDException {
+        return postMessage(message, null);
+    }
+
+    /**
+     * Add a new message to the database if the message is valid. A poster proven by a session token has already been
+     * validated, so the account doesn't need to be looked up.
+     * @param message The message to be added.
+     * @param sessionAccountID The ID of the user proven by the request's session token, or null if there was none.
+     * @return The new message.
+     * @throws InvalidMessageTextException <code>message.message_text</code> is either empty or longer than 255 characters.
+     * @throws InvalidUserIDException There is no user with the given <code>message.posted_by</code> ID, or it isn't the session's user.
+     */
+    public Message postMessage(Message message, Integer sessionAccountID) throws InvalidMessageTextException, InvalidUserIDException {
         if (message.message_text.length() <= 0 || message.message_text.length() >= 255)
             throw new InvalidMessageTextException();
-        if (!accountService.userExists(message.posted_by))
+        if (sessionAccountID != null && sessionAccountID != message.posted_by)
             throw new InvalidUserIDException(message.posted_by);
-        return messageDAO.insertMessage(message);
-        
+        if (sessionAccountID == null && !accountService.userExists(message.posted_by))
+            throw new InvalidUserIDException(message.posted_by);
+        Message postedMessage = writePipeline != null ? writePipeline.submit(message).join() : messageDAO.insertMessage(message);
+        if (postedMessage != null) {
+            searchIndex.addNew(postedMessage);
+            changed(postedMessage);
+            timelineService.messagesPosted(List.of(postedMessage));
+        }
+        return postedMessage;
+    }
+
+    /**
+     * Add a batch of new messages to the database. Each message is validated as {@link #postMessage(Message, Integer)}
+     * would, but the posters of the whole batch are looked up with one query, and the valid messages are inserted with
+     * one JDBC batch in one transaction.
+     * @param messages The messages to be added. Null entries are rejected.
+     * @param sessionAccountID The ID of the user proven by the request's session token, or null if there was none.
+     * @return The result of each message, in order, or null if the operation failed and nothing was added.
+     * @throws InvalidBatchException The batch holds more than {@link #MAX_BATCH_SIZE} messages.
+     */
+    public List<MessageResult> postMessages(List<Message> messages, Integer sessionAccountID) throws InvalidBatchException {
+        if (messages.size() > MAX_BATCH_SIZE)
+            throw new InvalidBatchException("A batch can hold at most " + MAX_BATCH_SIZE + " messages.");
+        String[] errors = new String[messages.size()];
+        Set<Integer> posters = new HashSet<>();
+        for (int i = 0; i < errors.length; i++) {
+            Message message = messages.get(i);
+            if (message == null)
+                errors[i] = "The message is missing.";
+            else if (message.message_text == null || message.message_text.length() <= 0 || message.message_text.length() >= 255)
+                errors[i] = new InvalidMessageTextException().getMessage();
+            else if (sessionAccountID != null && sessionAccountID != message.posted_by)
+                errors[i] = new InvalidUserIDException(message.posted_by).getMessage();
+            else if (sessionAccountID == null)
+                posters.add(message.posted_by);
+        }
+        Set<Integer> existingPosters = accountService.existingUserIDs(posters);
+        if (existingPosters == null)
+            return null;
+
+        List<Message> validMessages = new ArrayList<>(errors.length);
+        for (int i = 0; i < errors.length; i++) {
+            Message message = messages.get(i);
+            if (errors[i] == null && sessionAccountID == null && !existingPosters.contains(message.posted_by))
+                errors[i] = new InvalidUserIDException(message.posted_by).getMessage();
+            if (errors[i] == null)
+                validMessages.add(message);
+        }
+        if (!validMessages.isEmpty()) {
+            // The DAO sets each message's generated ID in place.
+            if (messageDAO.insertMessages(validMessages) == null)
+                return null;
+            for (Message message : validMessages) {
+                searchIndex.addNew(message);
+                changed(message);
+            }
+            timelineService.messagesPosted(validMessages);
+        }
+
+        List<MessageResult> results = new ArrayList<>(errors.length);
+        for (int i = 0; i < errors.length; i++)
+            results.add(errors[i] == null ? MessageResult.created(messages.get(i)) : MessageResult.rejected(errors[i]));
+        return results;
     }
     
     /**
@@ -61,9 +309,20 @@ public class MessageService {
     public Message patchMessageByID(int id, Message new_message) throws InvalidMessageTextException, InvalidMessageIDException {
         if (new_message.message_text.length() <= 0 || new_message.message_text.length() >= 255)
             throw new InvalidMessageTextException();
-        if (!messageExists(id))
-            throw new InvalidMessageIDException();
-        return messageDAO.updateMessageByID(id, new_message);
+        ReentrantLock writeLock = writeLock(id);
+        writeLock.lock();
+        try {
+            // The update reports a missing message itself, so no separate existence check is needed.
+            Message updatedMessage = messageDAO.updateMessageByID(id, new_message);
+            if (updatedMessage == null)
+                throw new InvalidMessageIDException();
+            messageCache.invalidate(id);
+            searchIndex.add(updatedMessage);
+            changed(updatedMessage);
+            return updatedMessage;
+        } finally {
+            writeLock.unlock();
+        }
     }
     
     /**
@@ -72,9 +331,49 @@ public class MessageService {
      * @return The deleted message, or null if the message didn't exist.
      */
     public Message deleteMessageByID(int id) {
-        if (messageExists(id))
-            return messageDAO.deleteMessageByID(id);
-        return null;
+        ReentrantLock writeLock = writeLock(id);
+        writeLock.lock();
+        try {
+            Message deletedMessage = messageDAO.deleteMessageByID(id);
+            if (deletedMessage != null) {
+                messageCache.invalidate(id);
+                searchIndex.remove(id);
+                changed(deletedMessage);
+            }
+            return deletedMessage;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @param id The ID of a message.
+     * @return The lock that patches and deletes of the message hold while they write it and update the search index.
+     */
+    private ReentrantLock writeLock(int id) {
+        return writeLocks[id & (writeLocks.length - 1)];
+    }
+
+    /**
+     * Index the text of every message in the database.
+     */
+    private void buildSearchIndex() {
+        try {
+            if (!messageDAO.streamMessages(new MessageQuery(0), searchIndex::add))
+                System.out.println("Could not build the search index; searches will miss existing messages.");
+        } catch (IOException e) {
+            // Indexing doesn't write anything, so this can't happen.
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Bump the version stamps a write has made stale: the message's own and its poster's list of messages.
+     * @param message The message as it was posted, updated or deleted.
+     */
+    private void changed(Message message) {
+        messageVersions.bump(message.message_id);
+        timelineVersions.bump(message.posted_by);
     }
     
     /**
@@ -86,11 +385,221 @@ public class MessageService {
         return messageDAO.getAllMessagesByAccountID(id);
     }
     
+    /**
+     * Get one page of messages, optionally only those posted by one user or in a range of times.
+     * @param accountID The ID of the user whose messages will be returned, or null for all messages.
+     * @param since The earliest <code>time_posted_epoch</code> to return, inclusive, or null for no lower bound.
+     * @param until The <code>time_posted_epoch</code> to stop before, exclusive, or null for no upper bound.
+     * @param order The column to order by, or null for the default ordering (or the cursor's ordering).
+     * @param after A cursor from a previous page, or null to start from the first message.
+     * @param limit The maximum number of messages to return, or null for the default page size.
+     * @return A page of messages and the cursor for the next page.
+     * @throws InvalidPageException The cursor, ordering, range or limit is invalid.
+     */
+    public MessagePage getMessagesPage(Integer accountID, Long since, Long until, String order, String after, Integer limit)
+            throws InvalidPageException {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE)
+            throw new InvalidPageException("The limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        // Ask for one extra row to learn whether there is a next page.
+        MessageQuery query = buildQuery(accountID, since, until, order, after, pageSize + 1);
+
+        List<Message> messages = messageDAO.getMessages(query);
+        if (messages == null)
+            return null;
+        String nextCursor = null;
+        if (messages.size() > pageSize) {
+            messages = messages.subList(0, pageSize);
+            nextCursor = MessageCursor.encode(query.order, messages.get(pageSize - 1));
+        }
+        return new MessagePage(messages, nextCursor);
+    }
+
+    /**
+     * Search message text for messages containing every word of a query, newest first. Words are matched whole and
+     * case-insensitively, and punctuation is ignored.
+     * @param q The words to search for.
+     * @param limit The maximum number of messages to return, or null for the default page size.
+     * @return The matching messages, or null if the operation failed.
+     * @throws InvalidPageException The limit is invalid.
+     */
+    public List<Message> searchMessages(String q, Integer limit) throws InvalidPageException {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE)
+            throw new InvalidPageException("The limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        List<String> terms = SearchIndex.terms(q);
+        // A write may land between reading the index and reading the messages, so only messages that still match are
+        // kept, and the index is asked for more until the page is full or it has no more.
+        for (int wanted = pageSize; ; wanted *= 2) {
+            int[] ids = searchIndex.search(terms, wanted);
+            List<Message> results = new ArrayList<>(Math.min(ids.length, pageSize));
+            if (ids.length == 0)
+                return results;
+            Message[] messages = lookUp(ids);
+            if (messages == null)
+                return null;
+            for (int i = 0; i < messages.length && results.size() < pageSize; i++) {
+                Message message = messages[i];
+                if (message != null && SearchIndex.terms(message.message_text).containsAll(terms))
+                    results.add(message);
+            }
+            if (results.size() == pageSize || ids.length < wanted)
+                return results;
+        }
+    }
+
+    /**
+     * Build the query for a streamed listing, optionally only of messages posted by one user or in a range of times.
+     * Unlike {@link #getMessagesPage(Integer, Long, Long, String, String, Integer)} a streamed listing is never
+     * collected, so it isn't bounded by a maximum page size.
+     * @param accountID The ID of the user whose messages will be streamed, or null for all messages.
+     * @param since The earliest <code>time_posted_epoch</code> to stream, inclusive, or null for no lower bound.
+     * @param until The <code>time_posted_epoch</code> to stop before, exclusive, or null for no upper bound.
+     * @param order The column to order by, or null for the default ordering (or the cursor's ordering).
+     * @param after A cursor from a previous page, or null to start from the first message.
+     * @param limit The maximum number of messages to stream, or null for no limit.
+     * @return The query to pass to {@link #streamMessages(MessageQuery, MessageHandler)}.
+     * @throws InvalidPageException The cursor, ordering, range or limit is invalid.
+     */
+    public MessageQuery getStreamQuery(Integer accountID, Long since, Long until, String order, String after, Integer limit)
+            throws InvalidPageException {
+        if (limit != null && limit <= 0)
+            throw new InvalidPageException("The limit must be positive.");
+        return buildQuery(accountID, since, until, order, after, limit == null ? 0 : limit);
+    }
+
+    /**
+     * Stream the messages of a listing to a handler as they are read.
+     * @param query The query built by {@link #getStreamQuery(Integer, Long, Long, String, String, Integer)}.
+     * @param handler Receives each message in order.
+     * @return True if every message was streamed, or false if the operation failed.
+     * @throws IOException The handler failed to write a message.
+     */
+    public boolean streamMessages(MessageQuery query, MessageHandler handler) throws IOException {
+        return messageDAO.streamMessages(query, handler);
+    }
+
+    /**
+     * Build the query for a listing from the parameters of a request. A listing bounded by time is ordered by
+     * <code>time_posted_epoch</code> unless another ordering is asked for, so that it is a range scan of the time
+     * index however large the table is; otherwise listings are ordered by <code>message_id</code>.
+     * @param accountID The ID of the user whose messages will be listed, or null for all messages.
+     * @param since The earliest <code>time_posted_epoch</code> to list, inclusive, or null for no lower bound.
+     * @param until The <code>time_posted_epoch</code> to stop before, exclusive, or null for no upper bound.
+     * @param order The column to order by, or null for the default ordering (or the cursor's ordering).
+     * @param after A cursor from a previous page, or null to start from the first message.
+     * @param limit The maximum number of rows the query returns, or 0 for no limit.
+     * @return The query for the listing.
+     * @throws InvalidPageException The cursor, ordering or range is invalid.
+     */
+    private MessageQuery buildQuery(Integer accountID, Long since, Long until, String order, String after, int limit)
+            throws InvalidPageException {
+        Order requestedOrder = order == null ? null : Order.fromColumn(order);
+        if (order != null && requestedOrder == null)
+            throw new InvalidPageException("Messages can't be ordered by '" + order + "'.");
+        if (since != null && until != null && since > until)
+            throw new InvalidPageException("The start of the range can't be after its end.");
+
+        MessageQuery query = new MessageQuery(limit);
+        query.postedBy = accountID;
+        query.since = since;
+        query.until = until;
+        if (requestedOrder != null)
+            query.order = requestedOrder;
+        else if (since != null || until != null)
+            query.order = Order.TIME_POSTED_EPOCH;
+        if (after != null) {
+            MessageCursor.decodeInto(after, query);
+            if (requestedOrder != null && requestedOrder != query.order)
+                throw new InvalidPageException("The cursor doesn't belong to a listing ordered by '" + order + "'.");
+        }
+        return query;
+    }
+
+    /**
+     * {@link #getMessagesPage(Integer, Long, Long, String, String, Integer)} on the database executor.
+     * @return A future of the page, which fails with a <code>RejectedExecutionException</code> if the executor is saturated.
+     */
+    public CompletableFuture<MessagePage> getMessagesPageAsync(Integer accountID, Long since, Long until, String order,
+            String after, Integer limit) {
+        return DbExecutor.submit(dbExecutor, () -> getMessagesPage(accountID, since, until, order, after, limit));
+    }
+
+    /**
+     * {@link #searchMessages(String, Integer)} on the database executor.
+     * @return A future of the matching messages, which fails with a <code>RejectedExecutionException</code> if the executor is saturated.
+     */
+    public CompletableFuture<List<Message>> searchMessagesAsync(String q, Integer limit) {
+        return DbExecutor.submit(dbExecutor, () -> searchMessages(q, limit));
+    }
+
+    /**
+     * {@link #getMessagesByIDs(int[])} on the database executor. Requests answered entirely from the cache don't use
+     * the executor.
+     * @return A future of the messages, which fails with a <code>RejectedExecutionException</code> if the executor is saturated.
+     */
+    public CompletableFuture<List<Message>> getMessagesByIDsAsync(int[] ids) {
+        // Oversized requests fail on the calling thread, without queueing.
+        if (ids.length > MAX_BATCH_SIZE)
+            return DbExecutor.submit(null, () -> getMessagesByIDs(ids));
+        Message[] messages = new Message[ids.length];
+        Set<Integer> missed = lookUpCached(ids, messages);
+        if (missed.isEmpty())
+            return CompletableFuture.completedFuture(Arrays.asList(messages));
+        return DbExecutor.submit(dbExecutor, () -> {
+            Message[] loaded = loadMissed(ids, messages, missed);
+            return loaded == null ? null : Arrays.asList(loaded);
+        });
+    }
+
+    /**
+     * {@link #getMessageByID(int)} on the database executor. Cached messages are returned without using the executor.
+     * @return A future of the message, which fails with a <code>RejectedExecutionException</code> if the executor is saturated.
+     */
+    public CompletableFuture<Message> getMessageByIDAsync(int id) {
+        Message cached = messageCache.getIfPresent(id);
+        if (cached != null)
+            return CompletableFuture.completedFuture(cached);
+        return DbExecutor.submit(dbExecutor, () -> messageCache.load(id, messageDAO::getMessageByID));
+    }
+
+    /**
+     * {@link #postMessage(Message, Integer)} on the database executor.
+     * @return A future of the new message, which fails with a <code>RejectedExecutionException</code> if the executor is saturated.
+     */
+    public CompletableFuture<Message> postMessageAsync(Message message, Integer sessionAccountID) {
+        return DbExecutor.submit(dbExecutor, () -> postMessage(message, sessionAccountID));
+    }
+
+    /**
+     * {@link #postMessages(List, Integer)} on the database executor.
+     * @return A future of the results, which fails with a <code>RejectedExecutionException</code> if the executor is saturated.
+     */
+    public CompletableFuture<List<MessageResult>> postMessagesAsync(List<Message> messages, Integer sessionAccountID) {
+        return DbExecutor.submit(dbExecutor, () -> postMessages(messages, sessionAccountID));
+    }
+
+    /**
+     * {@link #patchMessageByID(int, Message)} on the database executor.
+     * @return A future of the updated message, which fails with a <code>RejectedExecutionException</code> if the executor is saturated.
+     */
+    public CompletableFuture<Message> patchMessageByIDAsync(int id, Message new_message) {
+        return DbExecutor.submit(dbExecutor, () -> patchMessageByID(id, new_message));
+    }
+
+    /**
+     * {@link #deleteMessageByID(int)} on the database executor.
+     * @return A future of the deleted message, which fails with a <code>RejectedExecutionException</code> if the executor is saturated.
+     */
+    public CompletableFuture<Message> deleteMessageByIDAsync(int id) {
+        return DbExecutor.submit(dbExecutor, () -> deleteMessageByID(id));
+    }
+
     /**
      * @param id The ID of the message to check.
      * @return A boolean indicating whether a message exists with the given <code>id</code>.
      */
     public boolean messageExists(int id) {
-        return messageDAO.getMessageByID(id) != null;
+        return getMessageByID(id) != null;
     }
 }
@@ -0,0 +1,156 @@
+package Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import DAO.MessageDAO;
+import Model.Message;
+
+/**
+ * Group-commits new messages. Validated messages are queued by {@link #submit(Message)} and a single writer thread
+ * inserts them as JDBC batches, each committed in one transaction, then completes every caller's future with its
+ * message and generated ID. Under a burst of posts this replaces one commit per message with one commit per batch.
+ *
+ * A batch is written once it holds <code>maxBatchSize</code> messages, or once no further message has arrived within
+ * <code>lingerMillis</code> of the batch being started. With a linger of 0 the writer never waits: a batch is whatever
+ * queued up while the previous batch was being written, so a lone poster pays no added latency.
+ */
+public class MessageWritePipeline {
+    /**
+     * Queued by {@link #close()} to wake the writer if it is waiting for messages.
+     */
+    private static final PendingMessage CLOSE = new PendingMessage(null);
+
+    private final MessageDAO messageDAO;
+    private final int maxBatchSize;
+    private final long lingerMillis;
+    private final BlockingQueue<PendingMessage> queue;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    /**
+     * Constructor for the write pipeline. Starts the writer thread.
+     * @param messageDAO The DAO used to insert batches.
+     * @param maxBatchSize The most messages inserted in one batch.
+     * @param lingerMillis How long a started batch waits for more messages before being written.
+     * @param queueCapacity The most messages that may be waiting; further submissions block until there is room.
+     */
+    public MessageWritePipeline(MessageDAO messageDAO, int maxBatchSize, long lingerMillis, int queueCapacity) {
+        this.messageDAO = messageDAO;
+        this.maxBatchSize = maxBatchSize;
+        this.lingerMillis = lingerMillis;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        this.writer = new Thread(this::run, "message-write-pipeline");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queue a validated message to be inserted with the next batch.
+     * @param message The message to be added.
+     * @return A future completed with the new message, or with null if it could not be added.
+     */
+    public CompletableFuture<Message> submit(Message message) {
+        PendingMessage pending = new PendingMessage(message);
+        if (!running) {
+            pending.result.complete(null);
+            return pending.result;
+        }
+        try {
+            queue.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.result.complete(null);
+        }
+        if (!running && queue.remove(pending))
+            pending.result.complete(null);
+        return pending.result;
+    }
+
+    /**
+     * Stop accepting messages, and wait for the writer thread to write every message already queued. The writer isn't
+     * interrupted, since interrupting a thread in the middle of file I/O makes H2 close the database file.
+     */
+    public void close() {
+        running = false;
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                if (queue.offer(CLOSE, 100, TimeUnit.MILLISECONDS))
+                    break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    private void run() {
+        List<PendingMessage> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatchSize - batch.size());
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+                // Once closing, write what has been collected without lingering, and drain the rest.
+                while (running && batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingMessage next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null)
+                        break;
+                    batch.add(next);
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                }
+            } catch (InterruptedException e) {
+                // Nothing interrupts the writer; write what has been collected.
+            }
+            batch.removeIf(pending -> pending == CLOSE);
+            if (!batch.isEmpty())
+                write(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Insert a batch and complete its futures. If the batch fails as a whole, each message is retried on its own so
+     * that one bad message can't fail the messages it was batched with.
+     */
+    private void write(List<PendingMessage> batch) {
+        List<Message> messages = new ArrayList<>(batch.size());
+        for (PendingMessage pending : batch)
+            messages.add(pending.message);
+        // A lone message is cheaper to insert with auto-commit than as a one-row transaction.
+        List<Message> inserted = batch.size() > 1 ? messageDAO.insertMessages(messages) : null;
+        for (PendingMessage pending : batch) {
+            try {
+                pending.result.complete(inserted != null ? pending.message : messageDAO.insertMessage(pending.message));
+            } catch (RuntimeException e) {
+                pending.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * A queued message and the future its poster is waiting on.
+     */
+    private static class PendingMessage {
+        final Message message;
+        final CompletableFuture<Message> result = new CompletableFuture<>();
+
+        PendingMessage(Message message) {
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,523 @@
+package Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import Model.Message;
+
+/**
+ * An in-process inverted index of message text, mapping each term to the IDs of the messages that contain it. Terms
+ * are runs of letters and digits, lowercased, so punctuation and case never affect a match.
+ *
+ * Each term's IDs are kept sorted in blocks of about {@value #BLOCK_SIZE}, and each block is stored as the gaps between
+ * consecutive IDs in variable-length bytes, which takes one or two bytes per ID rather than four. New messages have the
+ * highest IDs, so indexing one usually only rewrites the last block of each of its terms, and a change to an old
+ * message only rewrites the one block it falls in.
+ *
+ * A search walks the blocks of its rarest term from the newest message backwards and checks each candidate against
+ * the terms recorded for that message, so it stops as soon as it has enough results and never reads the posting lists
+ * of its other terms. The terms of each message are recorded as the ordinals of their posting lists, packed into one
+ * <code>int[]</code> and found through an array indexed by message ID, which relies on IDs being assigned in sequence.
+ *
+ * Writers must update the index after changing a message in the database, in the same order as the database changes,
+ * so changes to one message must be serialized by the caller. A new message is indexed with {@link #addNew(Message)},
+ * which leaves it alone if a change to it already reached the index. The slot of a removed message keeps a tombstone,
+ * so a post that is only indexed after the message was deleted doesn't bring it back.
+ */
+public class SearchIndex {
+    private static final int BLOCK_SIZE = 128;
+    private static final int[] NO_RESULTS = new int[0];
+    /**
+     * The offset of a message that has been removed.
+     */
+    private static final int REMOVED = -1;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, PostingList> postings = new HashMap<>();
+    /**
+     * The posting lists by ordinal. Slots of lists that emptied are null until their ordinal is reused.
+     */
+    private PostingList[] lists = new PostingList[256];
+    private int nextOrdinal;
+    /**
+     * The ordinals of lists that emptied, for new lists to reuse. A list only empties once no live entry refers to
+     * its ordinal, so a reused ordinal is never mistaken for the old term.
+     */
+    private int[] freeOrdinals = new int[16];
+    private int freeCount;
+    /**
+     * The forward index, used to check candidates and to find what a change removes: for each message ID, the
+     * position of the message's entry in {@link #entries}, 0 if the message isn't indexed, or {@link #REMOVED}.
+     */
+    private int[] offsets = new int[1024];
+    /**
+     * The entry of each indexed message: its number of terms, followed by their ordinals. Entries are appended, and
+     * those a change replaces are left as garbage until {@link #compact()} reclaims them. Position 0 is unused.
+     */
+    private int[] entries = new int[4096];
+    private int entriesEnd = 1;
+    private int garbage;
+    private int documents;
+    /**
+     * Room for any block while it is rewritten. Only used under the write lock.
+     */
+    private final int[] scratch = new int[2 * BLOCK_SIZE + 1];
+
+    /**
+     * Index a message, replacing whatever was indexed for its ID before.
+     * @param message The message as it is stored in the database.
+     */
+    public void add(Message message) {
+        List<String> terms = terms(message.message_text);
+        lock.writeLock().lock();
+        try {
+            index(message.message_id, terms);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Index a newly posted message, unless a change to it or its removal has already been applied to the index.
+     * @param message The message as it was inserted into the database.
+     */
+    public void addNew(Message message) {
+        List<String> terms = terms(message.message_text);
+        int id = message.message_id;
+        lock.writeLock().lock();
+        try {
+            if (id >= offsets.length || offsets[id] == 0)
+                index(id, terms);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a message from the index.
+     * @param id The ID of the deleted message.
+     */
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            int previous = offset(id);
+            if (id >= offsets.length)
+                offsets = Arrays.copyOf(offsets, Math.max(id + 1, offsets.length * 2));
+            offsets[id] = REMOVED;
+            if (previous == 0)
+                return;
+            for (int i = 1; i <= entries[previous]; i++)
+                removeFrom(lists[entries[previous + i]], id);
+            garbage += entries[previous] + 1;
+            documents--;
+            if (garbage > entriesEnd / 2)
+                compact();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find the newest messages that contain every one of the given terms.
+     * @param terms The terms to search for, as returned by {@link #terms(String)}.
+     * @param limit The most IDs to return.
+     * @return The IDs of the matching messages, highest first.
+     */
+    public int[] search(List<String> terms, int limit) {
+        if (terms.isEmpty() || limit <= 0)
+            return NO_RESULTS;
+        lock.readLock().lock();
+        try {
+            int[] ordinals = new int[terms.size()];
+            PostingList rarest = null;
+            for (int i = 0; i < ordinals.length; i++) {
+                PostingList list = postings.get(terms.get(i));
+                if (list == null)
+                    return NO_RESULTS;
+                ordinals[i] = list.ordinal;
+                if (rarest == null || list.count < rarest.count)
+                    rarest = list;
+            }
+            int[] results = new int[Math.min(limit, rarest.count)];
+            int found = 0;
+            int[] block = new int[2 * BLOCK_SIZE + 1];
+            for (int b = rarest.blocks - 1; b >= 0 && found < results.length; b--) {
+                for (int i = rarest.decode(b, block) - 1; i >= 0 && found < results.length; i--) {
+                    if (ordinals.length == 1 || containsAll(offsets[block[i]], ordinals))
+                        results[found++] = block[i];
+                }
+            }
+            return found == results.length ? results : Arrays.copyOf(results, found);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return The number of indexed messages.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return The number of posting list ordinals handed out so far, whether in use or free to reuse.
+     */
+    int ordinals() {
+        lock.readLock().lock();
+        try {
+            return nextOrdinal;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Split text into the terms it is indexed or searched by.
+     * @param text A message's text or a search query, or null for none.
+     * @return The distinct terms of the text, lowercased, in the order they first appear.
+     */
+    public static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null)
+            return terms;
+        StringBuilder term = new StringBuilder();
+        for (int i = 0; i <= text.length(); ) {
+            int c = i < text.length() ? text.codePointAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                term.appendCodePoint(Character.toLowerCase(c));
+            } else if (term.length() > 0) {
+                String value = term.toString();
+                if (!terms.contains(value))
+                    terms.add(value);
+                term.setLength(0);
+            }
+            i += Character.charCount(c);
+        }
+        return terms;
+    }
+
+    /**
+     * Index a message's terms, replacing its previous entry if it has one. Only called under the write lock.
+     */
+    private void index(int id, List<String> terms) {
+        int previous = offset(id);
+        int[] current = new int[terms.size()];
+        for (int i = 0; i < current.length; i++) {
+            String term = terms.get(i);
+            PostingList list = postings.get(term);
+            if (list == null) {
+                list = newList(term);
+                postings.put(term, list);
+            }
+            if (!contains(previous, list.ordinal))
+                list.add(id, scratch);
+            current[i] = list.ordinal;
+        }
+        if (previous != 0) {
+            for (int i = 1; i <= entries[previous]; i++) {
+                int ordinal = entries[previous + i];
+                if (!contains(current, ordinal))
+                    removeFrom(lists[ordinal], id);
+            }
+            garbage += entries[previous] + 1;
+        } else {
+            documents++;
+        }
+        append(id, current);
+        if (garbage > entriesEnd / 2)
+            compact();
+    }
+
+    private PostingList newList(String term) {
+        int ordinal;
+        if (freeCount > 0) {
+            ordinal = freeOrdinals[--freeCount];
+        } else {
+            if (nextOrdinal == lists.length)
+                lists = Arrays.copyOf(lists, lists.length * 2);
+            ordinal = nextOrdinal++;
+        }
+        PostingList list = new PostingList(term, ordinal);
+        lists[ordinal] = list;
+        return list;
+    }
+
+    private void removeFrom(PostingList list, int id) {
+        list.remove(id, scratch);
+        if (list.count == 0) {
+            postings.remove(list.term);
+            lists[list.ordinal] = null;
+            if (freeCount == freeOrdinals.length)
+                freeOrdinals = Arrays.copyOf(freeOrdinals, freeCount * 2);
+            freeOrdinals[freeCount++] = list.ordinal;
+        }
+    }
+
+    /**
+     * @return The position of the message's entry, or 0 if it isn't indexed.
+     */
+    private int offset(int id) {
+        return id < offsets.length ? Math.max(0, offsets[id]) : 0;
+    }
+
+    /**
+     * Append a message's entry, and point its ID at it.
+     */
+    private void append(int id, int[] ordinals) {
+        if (id >= offsets.length)
+            offsets = Arrays.copyOf(offsets, Math.max(id + 1, offsets.length * 2));
+        if (entriesEnd + ordinals.length + 1 > entries.length)
+            entries = Arrays.copyOf(entries, Math.max(entriesEnd + ordinals.length + 1, entries.length * 2));
+        offsets[id] = entriesEnd;
+        entries[entriesEnd++] = ordinals.length;
+        System.arraycopy(ordinals, 0, entries, entriesEnd, ordinals.length);
+        entriesEnd += ordinals.length;
+    }
+
+    /**
+     * Reclaim the entries that changes have replaced, by copying the live ones into a new array in ID order.
+     */
+    private void compact() {
+        int[] live = new int[Math.max(16, 2 * (entriesEnd - garbage))];
+        int end = 1;
+        for (int id = 0; id < offsets.length; id++) {
+            int offset = offsets[id];
+            if (offset <= 0)
+                continue;
+            int length = entries[offset] + 1;
+            System.arraycopy(entries, offset, live, end, length);
+            offsets[id] = end;
+            end += length;
+        }
+        entries = live;
+        entriesEnd = end;
+        garbage = 0;
+    }
+
+    /**
+     * @param offset The position of a message's entry, or 0 for none.
+     * @return True if the entry holds the ordinal.
+     */
+    private boolean contains(int offset, int ordinal) {
+        if (offset != 0)
+            for (int i = 1; i <= entries[offset]; i++)
+                if (entries[offset + i] == ordinal)
+                    return true;
+        return false;
+    }
+
+    private static boolean contains(int[] ordinals, int ordinal) {
+        for (int candidate : ordinals)
+            if (candidate == ordinal)
+                return true;
+        return false;
+    }
+
+    private boolean containsAll(int offset, int[] ordinals) {
+        for (int ordinal : ordinals)
+            if (!contains(offset, ordinal))
+                return false;
+        return true;
+    }
+
+    /**
+     * The sorted IDs of the messages containing one term, in blocks. A block holds its first ID as is and the gaps to
+     * the rest as variable-length integers, seven bits to a byte.
+     */
+    private static final class PostingList {
+        final String term;
+        final int ordinal;
+        int count;
+        /**
+         * The highest ID in the list, so that appending one doesn't need the last block decoded.
+         */
+        int last;
+        int blocks;
+        int[] firsts = new int[1];
+        int[] sizes = new int[1];
+        /**
+         * The bytes of each block's gaps in use. Only the last block's array has room to spare, for appends.
+         */
+        int[] lengths = new int[1];
+        byte[][] gaps = new byte[1][];
+
+        PostingList(String term, int ordinal) {
+            this.term = term;
+            this.ordinal = ordinal;
+        }
+
+        /**
+         * @param id The ID to add, if it isn't already present.
+         * @param ids Room for a block being rewritten.
+         */
+        void add(int id, int[] ids) {
+            if (count == 0 || id > last) {
+                // Appending to a full last block starts a new one, so blocks filled in order stay at BLOCK_SIZE.
+                if (count == 0 || sizes[blocks - 1] >= BLOCK_SIZE) {
+                    ids[0] = id;
+                    insertBlock(blocks);
+                    encode(blocks - 1, ids, 0, 1);
+                } else {
+                    append(blocks - 1, id - last);
+                }
+                last = id;
+                count++;
+                return;
+            }
+            // An ID below the first block's goes at the start of it.
+            int b = Math.max(0, blockFor(id));
+            int size = decode(b, ids);
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0)
+                return;
+            at = -at - 1;
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            ids[at] = id;
+            size++;
+            count++;
+            if (size > 2 * BLOCK_SIZE) {
+                int half = size / 2;
+                encode(b, ids, 0, half);
+                insertBlock(b + 1);
+                encode(b + 1, ids, half, size);
+            } else {
+                encode(b, ids, 0, size);
+            }
+        }
+
+        /**
+         * @param id The ID to remove, if it is present.
+         * @param ids Room for a block being rewritten.
+         */
+        void remove(int id, int[] ids) {
+            int b = blockFor(id);
+            if (b < 0)
+                return;
+            int size = decode(b, ids);
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at < 0)
+                return;
+            count--;
+            if (size == 1) {
+                blocks--;
+                System.arraycopy(firsts, b + 1, firsts, b, blocks - b);
+                System.arraycopy(sizes, b + 1, sizes, b, blocks - b);
+                System.arraycopy(lengths, b + 1, lengths, b, blocks - b);
+                System.arraycopy(gaps, b + 1, gaps, b, blocks - b);
+                gaps[blocks] = null;
+            } else {
+                System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+                encode(b, ids, 0, size - 1);
+            }
+            if (id == last && count > 0)
+                last = ids[decode(blocks - 1, ids) - 1];
+        }
+
+        /**
+         * @param b The index of a block.
+         * @param ids Receives the block's IDs in order.
+         * @return The number of IDs in the block.
+         */
+        int decode(int b, int[] ids) {
+            byte[] bytes = gaps[b];
+            int id = firsts[b];
+            ids[0] = id;
+            for (int i = 1, position = 0; i < sizes[b]; i++) {
+                int gap = 0;
+                for (int shift = 0; ; shift += 7) {
+                    byte next = bytes[position++];
+                    gap |= (next & 0x7F) << shift;
+                    if (next >= 0)
+                        break;
+                }
+                id += gap;
+                ids[i] = id;
+            }
+            return sizes[b];
+        }
+
+        /**
+         * @return The index of the last block whose first ID is no greater than <code>id</code>, or -1 if there is none.
+         */
+        private int blockFor(int id) {
+            int low = 0, high = blocks - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (firsts[middle] <= id)
+                    low = middle + 1;
+                else
+                    high = middle - 1;
+            }
+            return high;
+        }
+
+        /**
+         * Make room for a new block at index <code>b</code>, to be filled by {@link #encode(int, int[], int, int)}.
+         */
+        private void insertBlock(int b) {
+            if (blocks == firsts.length) {
+                int capacity = blocks * 2;
+                firsts = Arrays.copyOf(firsts, capacity);
+                sizes = Arrays.copyOf(sizes, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+                gaps = Arrays.copyOf(gaps, capacity);
+            }
+            System.arraycopy(firsts, b, firsts, b + 1, blocks - b);
+            System.arraycopy(sizes, b, sizes, b + 1, blocks - b);
+            System.arraycopy(lengths, b, lengths, b + 1, blocks - b);
+            System.arraycopy(gaps, b, gaps, b + 1, blocks - b);
+            blocks++;
+        }
+
+        private void append(int b, int gap) {
+            byte[] bytes = gaps[b];
+            int position = lengths[b];
+            if (bytes.length - position < 5)
+                gaps[b] = bytes = Arrays.copyOf(bytes, Math.max(16, bytes.length * 2));
+            lengths[b] = writeVarInt(bytes, position, gap);
+            sizes[b]++;
+        }
+
+        private void encode(int b, int[] ids, int from, int to) {
+            int length = 0;
+            for (int i = from + 1; i < to; i++)
+                length += varIntLength(ids[i] - ids[i - 1]);
+            byte[] bytes = new byte[length];
+            int position = 0;
+            for (int i = from + 1; i < to; i++)
+                position = writeVarInt(bytes, position, ids[i] - ids[i - 1]);
+            firsts[b] = ids[from];
+            sizes[b] = to - from;
+            lengths[b] = length;
+            gaps[b] = bytes;
+        }
+
+        private static int writeVarInt(byte[] bytes, int position, int value) {
+            while ((value & ~0x7F) != 0) {
+                bytes[position++] = (byte) (value | 0x80);
+                value >>>= 7;
+            }
+            bytes[position++] = (byte) value;
+            return position;
+        }
+
+        private static int varIntLength(int value) {
+            int length = 1;
+            while ((value & ~0x7F) != 0) {
+                value >>>= 7;
+                length++;
+            }
+            return length;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import Exceptions.AccountExceptions.InvalidSessionException;
+
+/**
+ * Issues and validates self-contained session tokens. A token is <code>accountID.expiry.signature</code>, where the
+ * signature is an HMAC-SHA256 of the account ID and expiry, so a token can be validated entirely in memory without
+ * looking the account up.
+ *
+ * The signing key comes from the <code>session.secret</code> system property. Without it a random key is generated,
+ * and tokens only stay valid until the process restarts.
+ */
+public class SessionService {
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final long ttlSeconds;
+    /**
+     * An initialized MAC that is cloned for each signature. Cloning is cheap, and unlike a ThreadLocal it doesn't
+     * create a new MAC for every request when each request runs on its own virtual thread.
+     */
+    private final Mac prototype;
+
+    /**
+     * Constructor for the session service.
+     * @param secret The key tokens are signed with, or null to generate a random one.
+     * @param ttlSeconds How long an issued token stays valid.
+     */
+    public SessionService(String secret, long ttlSeconds) {
+        byte[] keyBytes;
+        if (secret != null) {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        } else {
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+        }
+        this.ttlSeconds = ttlSeconds;
+        try {
+            this.prototype = Mac.getInstance(ALGORITHM);
+            prototype.init(new SecretKeySpec(keyBytes, ALGORITHM));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param accountID The ID of the user who has logged in.
+     * @return A token proving that the user logged in, valid until it expires.
+     */
+    public String issue(int accountID) {
+        String payload = accountID + "." + (System.currentTimeMillis() / 1000 + ttlSeconds);
+        return payload + "." + sign(payload);
+    }
+
+    /**
+     * Validate a token without touching the database.
+     * @param token A token issued by {@link #issue(int)}.
+     * @return The ID of the user the token was issued to.
+     * @throws InvalidSessionException The token is malformed, has been tampered with, or has expired.
+     */
+    public int authenticate(String token) throws InvalidSessionException {
+        int signatureStart = token.lastIndexOf('.');
+        int expiryStart = token.indexOf('.');
+        if (expiryStart <= 0 || signatureStart <= expiryStart)
+            throw new InvalidSessionException();
+        String payload = token.substring(0, signatureStart);
+        byte[] expected = sign(payload).getBytes(StandardCharsets.US_ASCII);
+        byte[] actual = token.substring(signatureStart + 1).getBytes(StandardCharsets.US_ASCII);
+        if (!MessageDigest.isEqual(expected, actual))
+            throw new InvalidSessionException();
+        try {
+            long expiry = Long.parseLong(payload.substring(expiryStart + 1));
+            if (expiry < System.currentTimeMillis() / 1000)
+                throw new InvalidSessionException();
+            return Integer.parseInt(payload.substring(0, expiryStart));
+        } catch (NumberFormatException e) {
+            throw new InvalidSessionException();
+        }
+    }
+
+    private String sign(String payload) {
+        Mac mac;
+        try {
+            mac = (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("The " + ALGORITHM + " provider doesn't support cloning.", e);
+        }
+        byte[] signature = mac.doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+    }
+}
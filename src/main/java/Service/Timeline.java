@@ -0,0 +1,99 @@
+package Service;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded ring buffer of the IDs of the most recent messages of a timeline, kept in order. New messages have the
+ * highest IDs, so adding one is normally a write at the tail. Once the buffer is full, each new ID overwrites the
+ * oldest.
+ */
+public class Timeline {
+    private final int[] messageIDs;
+    private final ReentrantLock lock = new ReentrantLock();
+    /**
+     * The slot of the oldest message.
+     */
+    private int head;
+    private int size;
+
+    /**
+     * Constructor for an empty timeline.
+     * @param capacity The most messages kept.
+     */
+    public Timeline(int capacity) {
+        this.messageIDs = new int[capacity];
+    }
+
+    /**
+     * Add a message, unless it is already present or older than every message of a full buffer.
+     * @param messageID The ID of the message.
+     */
+    public void add(int messageID) {
+        lock.lock();
+        try {
+            // Find the message's position by walking back from the tail, which is almost always where it goes.
+            int position = size;
+            while (position > 0 && messageIDs[slot(position - 1)] > messageID)
+                position--;
+            if (position > 0 && messageIDs[slot(position - 1)] == messageID)
+                return;
+            if (size == messageIDs.length) {
+                if (position == 0)
+                    return;
+                head = slot(1);
+                size--;
+                position--;
+            }
+            for (int i = size; i > position; i--)
+                messageIDs[slot(i)] = messageIDs[slot(i - 1)];
+            messageIDs[slot(position)] = messageID;
+            size++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Read the newest messages older than a given message.
+     * @param beforeID Only messages with a lower ID are read.
+     * @param limit The most messages to read.
+     * @return The IDs of the messages, newest first.
+     */
+    public int[] read(int beforeID, int limit) {
+        lock.lock();
+        try {
+            // Binary search for the number of messages below beforeID.
+            int low = 0, high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (messageIDs[slot(middle)] < beforeID)
+                    low = middle + 1;
+                else
+                    high = middle;
+            }
+            int[] ids = new int[Math.min(limit, low)];
+            for (int i = 0; i < ids.length; i++)
+                ids[i] = messageIDs[slot(low - 1 - i)];
+            return ids;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The number of messages held.
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int slot(int position) {
+        int slot = head + position;
+        return slot < messageIDs.length ? slot : slot - messageIDs.length;
+    }
+}
@@ -0,0 +1,425 @@
+package Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import DAO.FollowDAO;
+import DAO.MessageDAO;
+import Model.Message;
+import Model.MessagePage;
+import Util.DbExecutor;
+import Exceptions.AccountExceptions.InvalidFollowException;
+import Exceptions.MessageExceptions.InvalidPageException;
+
+/**
+ * Follows between users, and each user's home feed of the messages posted by the users they follow.
+ *
+ * A home feed is read from a precomputed {@link Timeline} of the follower, built from the database on first read and
+ * then kept current by fanning each new message out to the timelines of its poster's followers. Reading a page is then
+ * proportional to the page size rather than to the number of users followed. Only the most recent
+ * <code>timelines.capacity</code> messages of a feed are kept, and only <code>timelines.maxCached</code> timelines,
+ * the least recently read being dropped first.
+ *
+ * Fanning out the messages of an account with <code>timelines.popularFollowers</code> or more followers would cost
+ * too much on every post, so such an account is marked popular and its messages are kept in a timeline of its own
+ * instead, which is merged into its followers' feeds as they are read. An account stays popular until the service
+ * restarts, so that no messages are lost between its followers' timelines and its own.
+ *
+ * Fan-out doesn't query the database: each cached timeline registers itself under the accounts its user follows, so
+ * a post is delivered by looking up the timelines registered under its poster. The registrations cost one entry per
+ * follow of each cached user, and are dropped with the timeline.
+ */
+public class TimelineService {
+    public FollowDAO followDAO;
+    public MessageDAO messageDAO;
+    public AccountService accountService;
+    /**
+     * Runs the <code>...Async</code> methods' database work, or null to run it on the calling thread.
+     */
+    public DbExecutor dbExecutor;
+
+    private final int capacity;
+    private final int popularFollowers;
+    private final Set<Integer> popularAccounts = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, HomeTimeline> homeTimelines;
+    /**
+     * The cached home timelines of each account's followers, by the followed account. Popular accounts aren't fanned
+     * out to, so their followers aren't registered under them.
+     */
+    private final Map<Integer, Set<HomeTimeline>> followerTimelines = new HashMap<>();
+    /**
+     * Guards {@link #homeTimelines} and {@link #followerTimelines}.
+     */
+    private final ReentrantLock homeTimelinesLock = new ReentrantLock();
+    private final Map<Integer, AuthorTimeline> authorTimelines = new ConcurrentHashMap<>();
+
+    /**
+     * A user's home timeline, and the popular accounts they follow, whose messages aren't in it.
+     */
+    private static final class HomeTimeline {
+        final Timeline timeline;
+        /**
+         * Set once, when the timeline has been built.
+         */
+        volatile List<Integer> popularFollowees;
+        /**
+         * The accounts this timeline is registered under in {@link #followerTimelines}, or null if it isn't.
+         */
+        List<Integer> registeredFollowees;
+
+        HomeTimeline(int capacity) {
+            this.timeline = new Timeline(capacity);
+        }
+    }
+
+    /**
+     * The messages a popular account posted itself.
+     */
+    private static final class AuthorTimeline {
+        final Timeline timeline;
+        volatile boolean loaded;
+
+        AuthorTimeline(int capacity) {
+            this.timeline = new Timeline(capacity);
+        }
+    }
+
+    /**
+     * Constructor for the timeline service.
+     * @param messageDAO The DAO that reads the messages of a feed.
+     * @param accountService The account service used to check that both users of a follow exist.
+     * @param dbExecutor Runs the <code>...Async</code> methods' database work, or null to run it on the calling thread.
+     */
+    public TimelineService(MessageDAO messageDAO, AccountService accountService, DbExecutor dbExecutor) {
+        this.followDAO = new FollowDAO();
+        this.messageDAO = messageDAO;
+        this.accountService = accountService;
+        this.dbExecutor = dbExecutor;
+        this.capacity = Integer.getInteger("timelines.capacity", 400);
+        this.popularFollowers = Integer.getInteger("timelines.popularFollowers", 1000);
+        int maxCached = Integer.getInteger("timelines.maxCached", 10000);
+        this.homeTimelines = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, HomeTimeline> eldest) {
+                if (size() <= maxCached)
+                    return false;
+                unregister(eldest.getValue());
+                return true;
+            }
+        };
+        List<Integer> popular = followDAO.getPopularAccounts(popularFollowers);
+        if (popular != null)
+            popularAccounts.addAll(popular);
+    }
+
+    /**
+     * Make one user follow another. Following a user that is already followed has no effect.
+     * @param followerID The ID of the user who will follow.
+     * @param followeeID The ID of the user who will be followed.
+     * @param sessionAccountID The ID of the user proven by the request's session token, or null if there was none.
+     * @return True if the user now follows the other, or false if the operation failed.
+     * @throws InvalidFollowException The users are the same, either doesn't exist, or the follower isn't the session's user.
+     */
+    public boolean follow(int followerID, int followeeID, Integer sessionAccountID) throws InvalidFollowException {
+        checkFollow(followerID, followeeID, sessionAccountID);
+        if (!followDAO.follow(followerID, followeeID))
+            return false;
+        evictHomeTimeline(followerID);
+        if (!popularAccounts.contains(followeeID) && followDAO.countFollowers(followeeID) >= popularFollowers) {
+            popularAccounts.add(followeeID);
+            // The new popular account's followers now merge its messages as they read, which their timelines don't
+            // record yet. Becoming popular is rare, so they are all rebuilt rather than looked up.
+            clearHomeTimelines();
+        }
+        return true;
+    }
+
+    /**
+     * Make one user stop following another. Unfollowing a user that isn't followed has no effect.
+     * @param followerID The ID of the user who follows.
+     * @param followeeID The ID of the user who is followed.
+     * @param sessionAccountID The ID of the user proven by the request's session token, or null if there was none.
+     * @return True if the user no longer follows the other, or false if the operation failed.
+     * @throws InvalidFollowException The users are the same, either doesn't exist, or the follower isn't the session's user.
+     */
+    public boolean unfollow(int followerID, int followeeID, Integer sessionAccountID) throws InvalidFollowException {
+        checkFollow(followerID, followeeID, sessionAccountID);
+        if (!followDAO.unfollow(followerID, followeeID))
+            return false;
+        // The timeline doesn't record who posted each message, so it is rebuilt rather than filtered.
+        evictHomeTimeline(followerID);
+        return true;
+    }
+
+    /**
+     * @param followerID The ID of the user whose followees will be returned.
+     * @return The IDs of the users the user follows, or null if the operation failed.
+     */
+    public List<Integer> getFollowees(int followerID) {
+        return followDAO.getFollowees(followerID);
+    }
+
+    /**
+     * Fan new messages out to the cached home timelines of their posters' followers. Must be called after the messages
+     * are visible in the database, so that a timeline built concurrently either reads them or receives them.
+     * @param messages The new messages.
+     */
+    public void messagesPosted(List<Message> messages) {
+        for (Message message : messages) {
+            if (popularAccounts.contains(message.posted_by)) {
+                AuthorTimeline author = authorTimelines.get(message.posted_by);
+                if (author != null)
+                    author.timeline.add(message.message_id);
+                continue;
+            }
+            List<HomeTimeline> timelines;
+            homeTimelinesLock.lock();
+            try {
+                Set<HomeTimeline> registered = followerTimelines.get(message.posted_by);
+                if (registered == null)
+                    continue;
+                timelines = new ArrayList<>(registered);
+            } finally {
+                homeTimelinesLock.unlock();
+            }
+            for (HomeTimeline home : timelines)
+                home.timeline.add(message.message_id);
+        }
+    }
+
+    /**
+     * Get one page of a user's home feed, newest first.
+     * @param userID The ID of the user whose feed will be returned.
+     * @param after A cursor from a previous page, or null to start from the newest message.
+     * @param limit The maximum number of messages to return, or null for the default page size.
+     * @return A page of messages and the cursor for the next page, or null if the operation failed.
+     * @throws InvalidPageException The cursor or limit is invalid.
+     */
+    public MessagePage getFeed(int userID, String after, Integer limit) throws InvalidPageException {
+        int pageSize = limit == null ? MessageService.DEFAULT_PAGE_SIZE : limit;
+        if (pageSize <= 0 || pageSize > MessageService.MAX_PAGE_SIZE)
+            throw new InvalidPageException("The limit must be between 1 and " + MessageService.MAX_PAGE_SIZE + ".");
+        int beforeID = Integer.MAX_VALUE;
+        if (after != null) {
+            try {
+                beforeID = Integer.parseInt(after);
+            } catch (NumberFormatException e) {
+                throw new InvalidPageException("The cursor is invalid.");
+            }
+        }
+
+        HomeTimeline home = homeTimeline(userID);
+        if (home == null)
+            return null;
+        List<int[]> sources = new ArrayList<>();
+        sources.add(home.timeline.read(beforeID, pageSize));
+        for (int followee : home.popularFollowees) {
+            AuthorTimeline author = authorTimeline(followee);
+            if (author == null)
+                return null;
+            sources.add(author.timeline.read(beforeID, pageSize));
+        }
+        int[] ids = merge(sources, pageSize);
+
+        List<Message> page = new ArrayList<>(ids.length);
+        if (ids.length > 0) {
+            List<Message> messages = messageDAO.getMessagesByIDs(ids);
+            if (messages == null)
+                return null;
+            Map<Integer, Message> byID = new HashMap<>();
+            for (Message message : messages)
+                byID.put(message.message_id, message);
+            // Deleted messages are left in timelines, and skipped here.
+            for (int id : ids) {
+                Message message = byID.get(id);
+                if (message != null)
+                    page.add(message);
+            }
+        }
+        String nextCursor = ids.length == pageSize ? String.valueOf(ids[pageSize - 1]) : null;
+        return new MessagePage(page, nextCursor);
+    }
+
+    /**
+     * {@link #follow(int, int, Integer)} on the database executor.
+     * @return A future of the result, which fails with a <code>RejectedExecutionException</code> if the executor is saturated.
+     */
+    public CompletableFuture<Boolean> followAsync(int followerID, int followeeID, Integer sessionAccountID) {
+        return DbExecutor.submit(dbExecutor, () -> follow(followerID, followeeID, sessionAccountID));
+    }
+
+    /**
+     * {@link #unfollow(int, int, Integer)} on the database executor.
+     * @return A future of the result, which fails with a <code>RejectedExecutionException</code> if the executor is saturated.
+     */
+    public CompletableFuture<Boolean> unfollowAsync(int followerID, int followeeID, Integer sessionAccountID) {
+        return DbExecutor.submit(dbExecutor, () -> unfollow(followerID, followeeID, sessionAccountID));
+    }
+
+    /**
+     * {@link #getFollowees(int)} on the database executor.
+     * @return A future of the IDs, which fails with a <code>RejectedExecutionException</code> if the executor is saturated.
+     */
+    public CompletableFuture<List<Integer>> getFolloweesAsync(int followerID) {
+        return DbExecutor.submit(dbExecutor, () -> getFollowees(followerID));
+    }
+
+    /**
+     * {@link #getFeed(int, String, Integer)} on the database executor.
+     * @return A future of the page, which fails with a <code>RejectedExecutionException</code> if the executor is saturated.
+     */
+    public CompletableFuture<MessagePage> getFeedAsync(int userID, String after, Integer limit) {
+        return DbExecutor.submit(dbExecutor, () -> getFeed(userID, after, limit));
+    }
+
+    private void checkFollow(int followerID, int followeeID, Integer sessionAccountID) throws InvalidFollowException {
+        if (sessionAccountID != null && sessionAccountID != followerID)
+            throw new InvalidFollowException("Only the session's user can change who they follow.");
+        if (followerID == followeeID)
+            throw new InvalidFollowException("A user can't follow themselves.");
+        if (!accountService.userExists(followerID) || !accountService.userExists(followeeID))
+            throw new InvalidFollowException("A user with that ID does not exist.");
+    }
+
+    private void clearHomeTimelines() {
+        homeTimelinesLock.lock();
+        try {
+            homeTimelines.clear();
+            followerTimelines.clear();
+        } finally {
+            homeTimelinesLock.unlock();
+        }
+    }
+
+    private void evictHomeTimeline(int userID) {
+        homeTimelinesLock.lock();
+        try {
+            HomeTimeline home = homeTimelines.remove(userID);
+            if (home != null)
+                unregister(home);
+        } finally {
+            homeTimelinesLock.unlock();
+        }
+    }
+
+    /**
+     * Register a timeline under the accounts its user follows, so that their new messages are fanned out to it. Does
+     * nothing if the timeline has been dropped from the cache meanwhile, since nothing would unregister it.
+     * Must hold {@link #homeTimelinesLock}.
+     */
+    private void register(int userID, HomeTimeline home, List<Integer> followees) {
+        if (homeTimelines.get(userID) != home || home.registeredFollowees != null)
+            return;
+        home.registeredFollowees = followees;
+        for (int followee : followees)
+            followerTimelines.computeIfAbsent(followee, id -> new HashSet<>()).add(home);
+    }
+
+    /**
+     * Must hold {@link #homeTimelinesLock}.
+     */
+    private void unregister(HomeTimeline home) {
+        if (home.registeredFollowees == null)
+            return;
+        for (int followee : home.registeredFollowees) {
+            Set<HomeTimeline> registered = followerTimelines.get(followee);
+            if (registered != null && registered.remove(home) && registered.isEmpty())
+                followerTimelines.remove(followee);
+        }
+        home.registeredFollowees = null;
+    }
+
+    /**
+     * Get a user's home timeline, building it from the database if it isn't cached. The timeline is cached before it
+     * is built, so messages fanned out while it is built aren't missed.
+     * @return The timeline, or null if it couldn't be built.
+     */
+    private HomeTimeline homeTimeline(int userID) {
+        HomeTimeline home;
+        homeTimelinesLock.lock();
+        try {
+            home = homeTimelines.get(userID);
+            if (home == null) {
+                home = new HomeTimeline(capacity);
+                homeTimelines.put(userID, home);
+            }
+        } finally {
+            homeTimelinesLock.unlock();
+        }
+        if (home.popularFollowees != null)
+            return home;
+        // Concurrent first reads may both build the timeline; adding a message twice has no effect.
+        List<Integer> followees = followDAO.getFollowees(userID);
+        if (followees == null)
+            return null;
+        List<Integer> popularFollowees = new ArrayList<>();
+        List<Integer> fannedOutFollowees = new ArrayList<>();
+        for (int followee : followees)
+            (popularAccounts.contains(followee) ? popularFollowees : fannedOutFollowees).add(followee);
+        // Registered before the messages are read, so that a message is either read below or fanned out to it.
+        homeTimelinesLock.lock();
+        try {
+            register(userID, home, fannedOutFollowees);
+        } finally {
+            homeTimelinesLock.unlock();
+        }
+        HomeTimeline building = home;
+        // Popular followees are left out in the query, so that the limit only counts messages the timeline keeps.
+        if (!followDAO.getFolloweeMessages(userID, popularFollowees, capacity,
+                (messageID, postedBy) -> building.timeline.add(messageID)))
+            return null;
+        home.popularFollowees = popularFollowees;
+        return home;
+    }
+
+    /**
+     * Get a popular account's own timeline, building it from the database if it isn't cached.
+     * @return The timeline, or null if it couldn't be built.
+     */
+    private AuthorTimeline authorTimeline(int authorID) {
+        AuthorTimeline author = authorTimelines.computeIfAbsent(authorID, id -> new AuthorTimeline(capacity));
+        if (author.loaded)
+            return author;
+        if (!followDAO.getRecentMessages(authorID, capacity, (messageID, postedBy) -> author.timeline.add(messageID)))
+            return null;
+        author.loaded = true;
+        return author;
+    }
+
+    /**
+     * Merge lists of message IDs, each newest first, into one, dropping duplicates.
+     * @param sources The lists to merge.
+     * @param limit The most IDs to return.
+     * @return The newest IDs of all the lists, newest first.
+     */
+    private static int[] merge(List<int[]> sources, int limit) {
+        if (sources.size() == 1)
+            return sources.get(0);
+        int[] positions = new int[sources.size()];
+        int[] merged = new int[limit];
+        int count = 0;
+        while (count < limit) {
+            int newest = -1;
+            for (int i = 0; i < positions.length; i++) {
+                int[] source = sources.get(i);
+                if (positions[i] < source.length && (newest < 0 || source[positions[i]] > sources.get(newest)[positions[newest]]))
+                    newest = i;
+            }
+            if (newest < 0)
+                break;
+            int id = sources.get(newest)[positions[newest]++];
+            if (count == 0 || merged[count - 1] != id)
+                merged[count++] = id;
+        }
+        return count == limit ? merged : Arrays.copyOf(merged, count);
+    }
+}
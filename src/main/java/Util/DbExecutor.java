@@ -0,0 +1,154 @@
+package Util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size executor dedicated to blocking database work, with a bounded queue. When the queue is full new work is
+ * rejected immediately instead of piling up, so callers can fail fast (with a 503) rather than time out.
+ *
+ * Tracks how many tasks are queued and running, how many were rejected, and how long tasks wait in the queue.
+ */
+public class DbExecutor {
+
+    /**
+     * A unit of database work that may throw the service layer's checked exceptions.
+     */
+    public interface Task<T> {
+        T call() throws Exception;
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    /**
+     * Constructor for the database executor.
+     * @param threads The number of threads running database work, usually the size of the connection pool.
+     * @param queueCapacity The most tasks that may wait for a thread before new tasks are rejected.
+     */
+    public DbExecutor(int threads, int queueCapacity) {
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "db-executor-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Run a task on the executor, or directly on the calling thread if there is no executor.
+     * @param executor The executor to run the task on, or null to run it inline.
+     * @param task The database work.
+     * @return A future completed with the task's result, or completed exceptionally with its exception, or with a
+     * <code>RejectedExecutionException</code> if the executor is saturated.
+     */
+    public static <T> CompletableFuture<T> submit(DbExecutor executor, Task<T> task) {
+        if (executor != null)
+            return executor.submit(task);
+        CompletableFuture<T> future = new CompletableFuture<>();
+        complete(future, task);
+        return future;
+    }
+
+    /**
+     * Run a task on the executor.
+     * @param task The database work.
+     * @return A future completed with the task's result, or completed exceptionally with its exception, or with a
+     * <code>RejectedExecutionException</code> if the executor is saturated.
+     */
+    public <T> CompletableFuture<T> submit(Task<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long queuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                long wait = System.nanoTime() - queuedAt;
+                totalWaitNanos.add(wait);
+                maxWaitNanos.accumulateAndGet(wait, Math::max);
+                complete(future, task);
+            });
+            submitted.increment();
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private static <T> void complete(CompletableFuture<T> future, Task<T> task) {
+        try {
+            future.complete(task.call());
+        } catch (Exception | Error e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * @return The number of tasks waiting for a thread.
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return The number of tasks currently running.
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * @return The number of tasks accepted by the executor.
+     */
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    /**
+     * @return The number of tasks rejected because the executor was saturated.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return The total time tasks have spent waiting in the queue, in nanoseconds.
+     */
+    public long getTotalWaitNanos() {
+        return totalWaitNanos.sum();
+    }
+
+    /**
+     * @return The longest time a task has spent waiting in the queue, in nanoseconds.
+     */
+    public long getMaxWaitNanos() {
+        return maxWaitNanos.get();
+    }
+
+    /**
+     * Stop accepting tasks and let the threads finish the tasks already queued.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Wait for the tasks queued before {@link #shutdown()} to finish.
+     * @param timeout The longest time to wait.
+     * @param unit The unit of <code>timeout</code>.
+     * @return True if every task finished, or false if the timeout elapsed first.
+     * @throws InterruptedException The calling thread was interrupted while waiting.
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+}
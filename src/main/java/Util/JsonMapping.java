@@ -0,0 +1,86 @@
+package Util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+
+import io.javalin.json.JsonMapper;
+
+/**
+ * The one Jackson configuration the API reads requests and writes responses with. It is registered as Javalin's
+ * <code>JsonMapper</code>, so <code>context.json</code> shares it with the handlers that parse request bodies.
+ *
+ * The Blackbird module replaces reflective field and accessor calls with generated lambdas. Readers and writers are
+ * created once per type and cached, which saves a lookup and an allocation on every request. An
+ * <code>ObjectReader</code> or <code>ObjectWriter</code> is immutable and safe to share between threads.
+ */
+public class JsonMapping implements JsonMapper {
+    private static final ObjectMapper mapper = new ObjectMapper().registerModule(new BlackbirdModule());
+    private static final Map<Type, ObjectReader> readers = new ConcurrentHashMap<>();
+    private static final Map<Type, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    /**
+     * The mapper to register with Javalin.
+     */
+    public static final JsonMapping INSTANCE = new JsonMapping();
+
+    private JsonMapping() {
+    }
+
+    /**
+     * @param type The type to read.
+     * @return The cached reader for the type.
+     */
+    public static ObjectReader readerFor(Type type) {
+        ObjectReader reader = readers.get(type);
+        if (reader == null)
+            reader = readers.computeIfAbsent(type, t -> mapper.readerFor(mapper.constructType(t)));
+        return reader;
+    }
+
+    /**
+     * @param type The type to write.
+     * @return The cached writer for the type.
+     */
+    public static ObjectWriter writerFor(Type type) {
+        ObjectWriter writer = writers.get(type);
+        if (writer == null)
+            writer = writers.computeIfAbsent(type, t -> mapper.writerFor(mapper.constructType(t)));
+        return writer;
+    }
+
+    @Override
+    public String toJsonString(Object obj, Type type) {
+        try {
+            return writerFor(type).writeValueAsString(obj);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public <T> T fromJsonString(String json, Type type) {
+        try {
+            return readerFor(type).readValue(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public <T> T fromJsonStream(InputStream json, Type type) {
+        try {
+            return readerFor(type).readValue(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
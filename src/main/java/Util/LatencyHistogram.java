@@ -0,0 +1,85 @@
+package Util;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free latency histogram with fixed buckets, in the shape Prometheus expects. Recording a latency is a scan of
+ * the bucket bounds and two <code>LongAdder</code> increments, so it is cheap enough to do on every request and
+ * doesn't contend when many threads record at once.
+ *
+ * Reading a histogram while it is being recorded into may see a value counted in its bucket but not yet in the sum,
+ * which Prometheus tolerates.
+ */
+public class LatencyHistogram {
+    /**
+     * The upper bounds of the buckets, in seconds. Latencies above the last bound fall in the implicit
+     * <code>+Inf</code> bucket.
+     */
+    public static final double[] BUCKETS = {
+        0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10,
+    };
+    private static final long[] BUCKET_NANOS = new long[BUCKETS.length];
+    static {
+        for (int i = 0; i < BUCKETS.length; i++)
+            BUCKET_NANOS[i] = (long) (BUCKETS[i] * 1e9);
+    }
+
+    /**
+     * Counts per bucket, not cumulative. The last counts latencies above every bound.
+     */
+    private final LongAdder[] counts = new LongAdder[BUCKETS.length + 1];
+    private final LongAdder sumNanos = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < counts.length; i++)
+            counts[i] = new LongAdder();
+    }
+
+    /**
+     * @param nanos The latency to record, in nanoseconds.
+     */
+    public void record(long nanos) {
+        int bucket = 0;
+        while (bucket < BUCKET_NANOS.length && nanos > BUCKET_NANOS[bucket])
+            bucket++;
+        counts[bucket].increment();
+        sumNanos.add(nanos);
+    }
+
+    /**
+     * @param startNanos A <code>System.nanoTime()</code> taken when the timed operation started.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @return The number of latencies at or below each bound in {@link #BUCKETS}, followed by the total count.
+     */
+    public long[] cumulativeCounts() {
+        long[] cumulative = new long[counts.length];
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            total += counts[i].sum();
+            cumulative[i] = total;
+        }
+        return cumulative;
+    }
+
+    /**
+     * @return The number of latencies recorded.
+     */
+    public long count() {
+        long total = 0;
+        for (LongAdder count : counts)
+            total += count.sum();
+        return total;
+    }
+
+    /**
+     * @return The sum of the latencies recorded, in seconds.
+     */
+    public double sumSeconds() {
+        return sumNanos.sum() / 1e9;
+    }
+}
@@ -0,0 +1,540 @@
+package Util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import Model.Message;
+
+/**
+ * Reads and writes the JSON of a {@link Message} directly to and from bytes, without reflection or an intermediate
+ * String. Messages are in nearly every response and their shape never changes, so the general-purpose Jackson path
+ * (see {@link JsonMapping}) isn't needed for them.
+ *
+ * Output is byte-for-byte what Jackson writes for the same message: fields in declaration order, no whitespace, and
+ * the same string escaping. Input in the usual shape, an object with some of the four fields holding plain numbers
+ * and a string or null, is read directly. Anything else is handed to Jackson, so unusual input is accepted or
+ * rejected exactly as before.
+ */
+public class MessageCodec {
+    private static final byte[] MESSAGE_ID = bytes("{\"message_id\":");
+    private static final byte[] POSTED_BY = bytes(",\"posted_by\":");
+    private static final byte[] MESSAGE_TEXT = bytes(",\"message_text\":");
+    private static final byte[] TIME_POSTED_EPOCH = bytes(",\"time_posted_epoch\":");
+    private static final byte[] NULL = bytes("null");
+    private static final byte[] HEX = bytes("0123456789ABCDEF");
+    /**
+     * The escape for each ASCII character: 0 if it is written as is, the letter of its short escape, or 'u' if it is
+     * written as a four-digit hex escape.
+     */
+    private static final byte[] ESCAPES = new byte[128];
+    static {
+        for (int c = 0; c < 0x20; c++)
+            ESCAPES[c] = 'u';
+        ESCAPES['"'] = '"';
+        ESCAPES['\\'] = '\\';
+        ESCAPES['\b'] = 'b';
+        ESCAPES['\t'] = 't';
+        ESCAPES['\n'] = 'n';
+        ESCAPES['\f'] = 'f';
+        ESCAPES['\r'] = 'r';
+    }
+
+    private MessageCodec() {
+    }
+
+    /**
+     * @param message The message to write.
+     * @return The message as JSON.
+     */
+    public static byte[] write(Message message) {
+        Buffer buffer = new Buffer(length(message));
+        buffer.writeMessage(message);
+        return buffer.toByteArray();
+    }
+
+    /**
+     * @param messages The messages to write. Null entries are written as <code>null</code>.
+     * @return The messages as a JSON array.
+     */
+    public static byte[] write(List<Message> messages) {
+        int capacity = 2 + Math.max(0, messages.size() - 1);
+        for (Message message : messages)
+            capacity += length(message);
+        Buffer buffer = new Buffer(capacity);
+        buffer.write('[');
+        for (int i = 0; i < messages.size(); i++) {
+            if (i > 0)
+                buffer.write(',');
+            buffer.writeMessage(messages.get(i));
+        }
+        buffer.write(']');
+        return buffer.toByteArray();
+    }
+
+    /**
+     * @param json A message as JSON.
+     * @return The message.
+     * @throws IOException The JSON is not a message.
+     */
+    public static Message read(byte[] json) throws IOException {
+        Message message = new Reader(json).readMessage();
+        if (message != null)
+            return message;
+        return JsonMapping.readerFor(Message.class).readValue(json);
+    }
+
+    /**
+     * @return The exact length of the message as JSON, so that it can be written into an array of just that size.
+     */
+    private static int length(Message message) {
+        if (message == null)
+            return NULL.length;
+        return MESSAGE_ID.length + length(message.message_id) + POSTED_BY.length + length(message.posted_by)
+                + MESSAGE_TEXT.length + length(message.message_text)
+                + TIME_POSTED_EPOCH.length + length(message.time_posted_epoch) + 1;
+    }
+
+    private static int length(long value) {
+        if (value == Long.MIN_VALUE)
+            return 20;
+        int length = value < 0 ? 2 : 1;
+        for (long v = Math.abs(value); v >= 10; v /= 10)
+            length++;
+        return length;
+    }
+
+    private static int length(String value) {
+        if (value == null)
+            return NULL.length;
+        int length = 2;
+        for (int i = 0; i < value.length(); i++)
+            length += length(value.charAt(i));
+        return length;
+    }
+
+    private static int length(char c) {
+        if (c < 0x80)
+            return ESCAPES[c] == 0 ? 1 : ESCAPES[c] == 'u' ? 6 : 2;
+        if (c < 0x800)
+            return 2;
+        return Character.isSurrogate(c) ? 6 : 3;
+    }
+
+    private static byte[] bytes(String ascii) {
+        return ascii.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Writes a JSON array of messages to a stream as they arrive, buffering the output in chunks.
+     */
+    public static class ArrayWriter {
+        private static final int CHUNK_SIZE = 8192;
+
+        private final OutputStream out;
+        private final Buffer buffer = new Buffer(CHUNK_SIZE + 512);
+        private boolean first = true;
+
+        /**
+         * Start an array.
+         * @param out The stream to write the array to.
+         */
+        public ArrayWriter(OutputStream out) {
+            this.out = out;
+            buffer.write('[');
+        }
+
+        /**
+         * @param message The next element of the array.
+         * @throws IOException The stream could not be written to.
+         */
+        public void write(Message message) throws IOException {
+            if (!first)
+                buffer.write(',');
+            first = false;
+            buffer.writeMessage(message);
+            if (buffer.size >= CHUNK_SIZE)
+                flush();
+        }
+
+        /**
+         * Write whatever is buffered, then close the stream.
+         * @param complete Whether to end the array. A listing cut short must stay visibly incomplete.
+         * @throws IOException The stream could not be written to.
+         */
+        public void close(boolean complete) throws IOException {
+            if (complete)
+                buffer.write(']');
+            flush();
+            out.close();
+        }
+
+        private void flush() throws IOException {
+            out.write(buffer.bytes, 0, buffer.size);
+            buffer.size = 0;
+        }
+    }
+
+    /**
+     * A growable byte buffer that messages are encoded into.
+     */
+    private static class Buffer {
+        byte[] bytes;
+        int size;
+
+        Buffer(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        byte[] toByteArray() {
+            return size == bytes.length ? bytes : Arrays.copyOf(bytes, size);
+        }
+
+        void write(int b) {
+            ensure(1);
+            bytes[size++] = (byte) b;
+        }
+
+        void write(byte[] b) {
+            ensure(b.length);
+            System.arraycopy(b, 0, bytes, size, b.length);
+            size += b.length;
+        }
+
+        void writeMessage(Message message) {
+            if (message == null) {
+                write(NULL);
+                return;
+            }
+            write(MESSAGE_ID);
+            writeNumber(message.message_id);
+            write(POSTED_BY);
+            writeNumber(message.posted_by);
+            write(MESSAGE_TEXT);
+            writeString(message.message_text);
+            write(TIME_POSTED_EPOCH);
+            writeNumber(message.time_posted_epoch);
+            write('}');
+        }
+
+        void writeNumber(long value) {
+            int length = length(value);
+            ensure(length);
+            if (value == Long.MIN_VALUE) {
+                write(bytes(Long.toString(value)));
+                return;
+            }
+            if (value < 0) {
+                bytes[size++] = '-';
+                value = -value;
+                length--;
+            }
+            for (int i = size + length - 1; i >= size; i--) {
+                bytes[i] = (byte) ('0' + value % 10);
+                value /= 10;
+            }
+            size += length;
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                write(NULL);
+                return;
+            }
+            // Room for the quotes and plain ASCII; anything longer makes room for itself and the rest.
+            ensure(2 + value.length());
+            bytes[size++] = '"';
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c < 0x80 && ESCAPES[c] == 0) {
+                    bytes[size++] = (byte) c;
+                    continue;
+                }
+                ensure(length(c) + value.length() - i);
+                if (c < 0x80) {
+                    bytes[size++] = '\\';
+                    bytes[size++] = ESCAPES[c];
+                    if (ESCAPES[c] == 'u') {
+                        bytes[size++] = '0';
+                        bytes[size++] = '0';
+                        bytes[size++] = HEX[c >> 4];
+                        bytes[size++] = HEX[c & 0xF];
+                    }
+                } else if (c < 0x800) {
+                    bytes[size++] = (byte) (0xC0 | (c >> 6));
+                    bytes[size++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    // Jackson escapes each half of a surrogate pair rather than writing the pair's code point.
+                    bytes[size++] = '\\';
+                    bytes[size++] = 'u';
+                    bytes[size++] = HEX[c >> 12];
+                    bytes[size++] = HEX[(c >> 8) & 0xF];
+                    bytes[size++] = HEX[(c >> 4) & 0xF];
+                    bytes[size++] = HEX[c & 0xF];
+                } else {
+                    bytes[size++] = (byte) (0xE0 | (c >> 12));
+                    bytes[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    bytes[size++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            bytes[size++] = '"';
+        }
+
+        private void ensure(int needed) {
+            if (size + needed > bytes.length)
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + needed));
+        }
+    }
+
+    /**
+     * Reads a message in the usual shape, giving up with null on anything else.
+     */
+    private static class Reader {
+        private final byte[] json;
+        private int position;
+
+        Reader(byte[] json) {
+            this.json = json;
+        }
+
+        Message readMessage() {
+            Message message = new Message();
+            skipWhitespace();
+            if (!consume('{'))
+                return null;
+            skipWhitespace();
+            if (consume('}'))
+                return atEnd() ? message : null;
+            do {
+                skipWhitespace();
+                int field = readFieldName();
+                skipWhitespace();
+                if (!consume(':'))
+                    return null;
+                skipWhitespace();
+                switch (field) {
+                    case 0:
+                    case 1:
+                        long value = readNumber();
+                        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+                            return null;
+                        if (field == 0)
+                            message.message_id = (int) value;
+                        else
+                            message.posted_by = (int) value;
+                        break;
+                    case 2:
+                        if (peek('"'))
+                            message.message_text = readString();
+                        else if (consumeNull())
+                            message.message_text = null;
+                        else
+                            return null;
+                        break;
+                    case 3:
+                        long epoch = readNumber();
+                        if (epoch == Long.MIN_VALUE)
+                            return null;
+                        message.time_posted_epoch = epoch;
+                        break;
+                    default:
+                        return null;
+                }
+                if (position < 0)
+                    return null;
+                skipWhitespace();
+            } while (consume(','));
+            return consume('}') && atEnd() ? message : null;
+        }
+
+        /**
+         * @return The index of the field in a message, or -1 if it isn't one.
+         */
+        private int readFieldName() {
+            if (!consume('"'))
+                return -1;
+            int start = position;
+            while (position < json.length && json[position] != '"') {
+                if (json[position] == '\\')
+                    return -1;
+                position++;
+            }
+            if (position >= json.length)
+                return -1;
+            int field = fieldIndex(start, position - start);
+            position++;
+            return field;
+        }
+
+        private int fieldIndex(int start, int length) {
+            if (matches(start, length, "message_id"))
+                return 0;
+            if (matches(start, length, "posted_by"))
+                return 1;
+            if (matches(start, length, "message_text"))
+                return 2;
+            if (matches(start, length, "time_posted_epoch"))
+                return 3;
+            return -1;
+        }
+
+        private boolean matches(int start, int length, String name) {
+            if (length != name.length())
+                return false;
+            for (int i = 0; i < length; i++)
+                if (json[start + i] != name.charAt(i))
+                    return false;
+            return true;
+        }
+
+        /**
+         * @return An integer, or Long.MIN_VALUE with position set to -1 if the next value isn't a plain integer that
+         * fits in a long.
+         */
+        private long readNumber() {
+            boolean negative = consume('-');
+            int start = position;
+            long value = 0;
+            while (position < json.length && json[position] >= '0' && json[position] <= '9') {
+                if (value > (Long.MAX_VALUE - 9) / 10)
+                    return fail();
+                value = value * 10 + (json[position++] - '0');
+            }
+            int digits = position - start;
+            // Leading zeros, fractions and exponents are left to Jackson.
+            if (digits == 0 || (digits > 1 && json[start] == '0'))
+                return fail();
+            if (position < json.length && (json[position] == '.' || json[position] == 'e' || json[position] == 'E'))
+                return fail();
+            return negative ? -value : value;
+        }
+
+        private long fail() {
+            position = -1;
+            return Long.MIN_VALUE;
+        }
+
+        /**
+         * @return The string starting at the current position, or null with position set to -1 if it holds anything
+         * but valid UTF-8 and standard escapes.
+         */
+        private String readString() {
+            position++;
+            StringBuilder unescaped = null;
+            int runStart = position;
+            boolean ascii = true;
+            while (position < json.length) {
+                int b = json[position] & 0xFF;
+                if (b == '"') {
+                    String run = decode(runStart, position, ascii);
+                    position++;
+                    if (run == null)
+                        return failString();
+                    return unescaped == null ? run : unescaped.append(run).toString();
+                }
+                if (b < 0x20)
+                    return failString();
+                if (b == '\\') {
+                    String run = decode(runStart, position, ascii);
+                    if (run == null || position + 1 >= json.length)
+                        return failString();
+                    if (unescaped == null)
+                        unescaped = new StringBuilder();
+                    unescaped.append(run);
+                    int escaped = readEscape();
+                    if (escaped < 0)
+                        return failString();
+                    unescaped.append((char) escaped);
+                    runStart = position;
+                    ascii = true;
+                    continue;
+                }
+                if (b >= 0x80)
+                    ascii = false;
+                position++;
+            }
+            return failString();
+        }
+
+        private int readEscape() {
+            position++;
+            switch (json[position++]) {
+                case '"': return '"';
+                case '\\': return '\\';
+                case '/': return '/';
+                case 'b': return '\b';
+                case 'f': return '\f';
+                case 'n': return '\n';
+                case 'r': return '\r';
+                case 't': return '\t';
+                case 'u':
+                    if (position + 4 > json.length)
+                        return -1;
+                    int value = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(json[position++], 16);
+                        if (digit < 0)
+                            return -1;
+                        value = (value << 4) | digit;
+                    }
+                    return value;
+                default:
+                    return -1;
+            }
+        }
+
+        private String decode(int start, int end, boolean ascii) {
+            if (ascii)
+                return new String(json, start, end - start, StandardCharsets.ISO_8859_1);
+            try {
+                return StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(json, start, end - start)).toString();
+            } catch (CharacterCodingException e) {
+                return null;
+            }
+        }
+
+        private String failString() {
+            position = -1;
+            return null;
+        }
+
+        private boolean consumeNull() {
+            if (position + 4 > json.length)
+                return false;
+            for (int i = 0; i < 4; i++)
+                if (json[position + i] != NULL[i])
+                    return false;
+            position += 4;
+            return true;
+        }
+
+        private void skipWhitespace() {
+            while (position >= 0 && position < json.length) {
+                byte b = json[position];
+                if (b != ' ' && b != '\t' && b != '\n' && b != '\r')
+                    return;
+                position++;
+            }
+        }
+
+        private boolean peek(char c) {
+            return position >= 0 && position < json.length && json[position] == c;
+        }
+
+        private boolean consume(char c) {
+            if (!peek(c))
+                return false;
+            position++;
+            return true;
+        }
+
+        private boolean atEnd() {
+            skipWhitespace();
+            return position == json.length;
+        }
+    }
+}
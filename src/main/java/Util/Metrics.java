@@ -0,0 +1,156 @@
+package Util;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide request and database timings, rendered in the Prometheus text exposition format.
+ *
+ * Recording never takes a lock: series are looked up in concurrent maps, which only lock the first time a series is
+ * created, and counts go to <code>LongAdder</code>s and {@link LatencyHistogram}s.
+ */
+public final class Metrics {
+    /**
+     * Times one kind of operation and counts how often it failed.
+     */
+    public static class Timer {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+
+        /**
+         * @param startNanos A <code>System.nanoTime()</code> taken when the timed operation started.
+         */
+        public void recordSince(long startNanos) {
+            latency.recordSince(startNanos);
+        }
+
+        /**
+         * Count a failed operation. Its latency is still recorded by {@link #recordSince(long)}.
+         */
+        public void error() {
+            errors.increment();
+        }
+    }
+
+    /**
+     * The timing of one route, and its responses counted by status code.
+     */
+    private static class RouteMetrics {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Route metrics by <code>method route</code>.
+     */
+    private static final Map<String, RouteMetrics> routes = new ConcurrentHashMap<>();
+    /**
+     * DAO timers by <code>dao.method</code>.
+     */
+    private static final Map<String, Timer> daoTimers = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * Record a request answered by a route.
+     * @param method The HTTP method.
+     * @param route The path the route was registered with, e.g. <code>/messages/{id}</code>, so that requests for
+     * different IDs share one series.
+     * @param status The response status code.
+     * @param nanos How long the request took, in nanoseconds.
+     */
+    public static void recordRequest(String method, String route, int status, long nanos) {
+        RouteMetrics metrics = routes.computeIfAbsent(method + " " + route, key -> new RouteMetrics());
+        metrics.latency.record(nanos);
+        metrics.statuses.computeIfAbsent(status, key -> new LongAdder()).increment();
+    }
+
+    /**
+     * Get the timer for a DAO method. Look it up once and keep it, e.g. in a static field.
+     * @param dao The DAO's class name.
+     * @param method The method's name.
+     * @return The method's timer.
+     */
+    public static Timer daoTimer(String dao, String method) {
+        return daoTimers.computeIfAbsent(dao + "." + method, key -> new Timer());
+    }
+
+    /**
+     * Write every request and DAO metric.
+     * @param out Receives the metrics in the Prometheus text format.
+     */
+    public static void write(StringBuilder out) {
+        Map<String, RouteMetrics> sortedRoutes = new TreeMap<>(routes);
+        header(out, "http_requests_total", "Requests answered, by route and status code.", "counter");
+        for (Map.Entry<String, RouteMetrics> entry : sortedRoutes.entrySet()) {
+            String labels = routeLabels(entry.getKey());
+            for (Map.Entry<Integer, LongAdder> status : new TreeMap<>(entry.getValue().statuses).entrySet())
+                sample(out, "http_requests_total", labels + ",status=\"" + status.getKey() + "\"", status.getValue().sum());
+        }
+        header(out, "http_request_duration_seconds", "Time to answer a request, by route.", "histogram");
+        for (Map.Entry<String, RouteMetrics> entry : sortedRoutes.entrySet())
+            histogram(out, "http_request_duration_seconds", routeLabels(entry.getKey()), entry.getValue().latency);
+
+        Map<String, Timer> sortedTimers = new TreeMap<>(daoTimers);
+        header(out, "dao_call_duration_seconds", "Time spent in a DAO method, including borrowing a connection.", "histogram");
+        for (Map.Entry<String, Timer> entry : sortedTimers.entrySet())
+            histogram(out, "dao_call_duration_seconds", daoLabels(entry.getKey()), entry.getValue().latency);
+        header(out, "dao_errors_total", "DAO calls that failed with a database error.", "counter");
+        for (Map.Entry<String, Timer> entry : sortedTimers.entrySet())
+            sample(out, "dao_errors_total", daoLabels(entry.getKey()), entry.getValue().errors.sum());
+    }
+
+    /**
+     * Write a metric that has a single, unlabelled value.
+     * @param out Receives the metric in the Prometheus text format.
+     * @param name The metric name. Counters must end in <code>_total</code>.
+     * @param help A description of the metric.
+     * @param type <code>counter</code> or <code>gauge</code>.
+     * @param value The metric's current value.
+     */
+    public static void write(StringBuilder out, String name, String help, String type, double value) {
+        header(out, name, help, type);
+        out.append(name).append(' ').append(format(value)).append('\n');
+    }
+
+    private static void header(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void histogram(StringBuilder out, String name, String labels, LatencyHistogram histogram) {
+        long[] cumulative = histogram.cumulativeCounts();
+        for (int i = 0; i < LatencyHistogram.BUCKETS.length; i++)
+            sample(out, name + "_bucket", labels + ",le=\"" + format(LatencyHistogram.BUCKETS[i]) + "\"", cumulative[i]);
+        long count = cumulative[cumulative.length - 1];
+        sample(out, name + "_bucket", labels + ",le=\"+Inf\"", count);
+        out.append(name).append("_sum{").append(labels).append("} ").append(format(histogram.sumSeconds())).append('\n');
+        sample(out, name + "_count", labels, count);
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, long value) {
+        out.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+    }
+
+    private static String routeLabels(String key) {
+        int space = key.indexOf(' ');
+        return "method=\"" + escape(key.substring(0, space)) + "\",route=\"" + escape(key.substring(space + 1)) + "\"";
+    }
+
+    private static String daoLabels(String key) {
+        int dot = key.indexOf('.');
+        return "dao=\"" + escape(key.substring(0, dot)) + "\",method=\"" + escape(key.substring(dot + 1)) + "\"";
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String format(double value) {
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+}
@@ -0,0 +1,86 @@
+package Util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Hashes passwords for storage with salted PBKDF2-HMAC-SHA256. The iteration count is the tunable cost and is stored
+ * with each hash as <code>pbkdf2-sha256$iterations$salt$hash</code>, so raising it only affects new hashes, and
+ * {@link #needsRehash(String)} reports hashes that should be upgraded.
+ *
+ * Passwords stored before hashing was introduced are plain text; they still verify, and always need a rehash.
+ */
+public class PasswordHasher {
+    private static final String PREFIX = "pbkdf2-sha256$";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    private final int iterations;
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * Constructor for the password hasher.
+     * @param iterations The PBKDF2 iteration count used for new hashes.
+     */
+    public PasswordHasher(int iterations) {
+        this.iterations = iterations;
+    }
+
+    /**
+     * @param password The plain text password.
+     * @return The salted hash to store in place of the password.
+     */
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return PREFIX + iterations + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(pbkdf2(password, salt, iterations));
+    }
+
+    /**
+     * @param password The plain text password given at login.
+     * @param stored The stored hash, or a legacy plain text password.
+     * @return A boolean indicating whether the password matches.
+     */
+    public boolean verify(String password, String stored) {
+        if (password == null || stored == null)
+            return false;
+        if (!stored.startsWith(PREFIX))
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+        String[] parts = stored.substring(PREFIX.length()).split("\\$");
+        if (parts.length != 3)
+            return false;
+        try {
+            Base64.Decoder decoder = Base64.getDecoder();
+            byte[] expected = decoder.decode(parts[2]);
+            return MessageDigest.isEqual(expected, pbkdf2(password, decoder.decode(parts[1]), Integer.parseInt(parts[0])));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param stored The stored hash, or a legacy plain text password.
+     * @return A boolean indicating whether the stored value should be replaced by a fresh hash at the current cost.
+     */
+    public boolean needsRehash(String stored) {
+        return !stored.startsWith(PREFIX + iterations + "$");
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package Util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.h2.tools.RunScript;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Brings the database schema up to date by applying the versioned scripts in <code>db/migration</code> in order. Each
+ * applied script is recorded in the <code>schema_version</code> table with a SHA-256 checksum, so a script is only ever
+ * applied once, and editing a script after it has been applied is reported instead of silently ignored.
+ *
+ * To change the schema, add a new script named <code>V&lt;version&gt;__&lt;description&gt;.sql</code> and append it to
+ * {@link #MIGRATIONS}. Never edit a script that has been released.
+ *
+ * A script and its <code>schema_version</code> row are applied in one transaction, but H2 commits every DDL statement
+ * as it runs, so a script that fails partway leaves its earlier DDL in place and is only unrecorded. Every script must
+ * therefore be safe to re-run, using <code>IF NOT EXISTS</code> and <code>IF EXISTS</code> throughout, so that once the
+ * cause of the failure is fixed the next {@link #migrate()} applies the whole script again over what was left.
+ */
+public class SchemaMigrator {
+    private static final Logger log = LoggerFactory.getLogger(SchemaMigrator.class);
+
+    /**
+     * Every migration script, in the order they are applied.
+     */
+    static final String[] MIGRATIONS = {
+        "V1__create_account_and_message.sql",
+        "V2__index_message_posted_by_time.sql",
+        "V3__index_message_time.sql",
+        "V4__create_follow.sql",
+        "V5__index_message_time_id.sql",
+    };
+
+    private static final String LOCATION = "db/migration/";
+
+    private final ConnectionPool pool;
+    private final String location;
+    private final String[] migrations;
+    /**
+     * A lock rather than <code>synchronized</code>, so a virtual thread holding it doesn't pin its carrier thread
+     * while it makes blocking JDBC calls.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Constructor for the schema migrator.
+     * @param pool The pool to borrow a connection from while migrating.
+     */
+    public SchemaMigrator(ConnectionPool pool) {
+        this(pool, LOCATION, MIGRATIONS);
+    }
+
+    /**
+     * Constructor for a schema migrator applying other scripts, for tests.
+     * @param pool The pool to borrow a connection from while migrating.
+     * @param location The classpath directory holding the scripts, ending with a slash.
+     * @param migrations Every migration script, in the order they are applied.
+     */
+    SchemaMigrator(ConnectionPool pool, String location, String[] migrations) {
+        this.pool = pool;
+        this.location = location;
+        this.migrations = migrations;
+    }
+
+    /**
+     * Apply every migration that hasn't been applied yet.
+     * @return The number of migrations applied.
+     * @throws IllegalStateException A migration failed, or an applied migration's script has changed since.
+     */
+    public int migrate() {
+        lock.lock();
+        try (Connection connection = pool.getConnection()) {
+            connection.createStatement().execute("create table if not exists schema_version ("
+                    + "version int primary key, "
+                    + "script varchar(255) not null, "
+                    + "checksum varchar(64) not null, "
+                    + "applied_on timestamp default current_timestamp, "
+                    + "execution_ms bigint)");
+            Map<Integer, String> applied = new HashMap<>();
+            ResultSet rs = connection.createStatement().executeQuery("SELECT version, checksum FROM schema_version");
+            while (rs.next())
+                applied.put(rs.getInt("version"), rs.getString("checksum"));
+
+            int count = 0;
+            for (String script : migrations) {
+                int version = versionOf(script);
+                byte[] contents = load(script);
+                String checksum = checksum(contents);
+                if (applied.containsKey(version)) {
+                    if (!applied.get(version).equals(checksum))
+                        throw new IllegalStateException("Migration " + script + " has changed since it was applied.");
+                    continue;
+                }
+                apply(connection, version, script, contents, checksum);
+                count++;
+            }
+            return count;
+        } catch (SQLException | IOException e) {
+            throw new IllegalStateException("Could not migrate the database schema: " + e.getMessage(), e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void apply(Connection connection, int version, String script, byte[] contents, String checksum) throws SQLException {
+        long start = System.currentTimeMillis();
+        // Only the data changes and the schema_version row are rolled back on failure; H2 has already committed any DDL.
+        connection.setAutoCommit(false);
+        try {
+            RunScript.execute(connection, new InputStreamReader(new ByteArrayInputStream(contents), StandardCharsets.UTF_8));
+            PreparedStatement preparedStatement = connection.prepareStatement(
+                    "INSERT INTO schema_version (version, script, checksum, execution_ms) VALUES (?, ?, ?, ?)");
+            preparedStatement.setInt(1, version);
+            preparedStatement.setString(2, script);
+            preparedStatement.setString(3, checksum);
+            preparedStatement.setLong(4, System.currentTimeMillis() - start);
+            preparedStatement.executeUpdate();
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw new SQLException("Migration " + script + " failed: " + e.getMessage(), e);
+        } finally {
+            connection.setAutoCommit(true);
+        }
+        log.info("Applied migration {} in {}ms", script, System.currentTimeMillis() - start);
+    }
+
+    private static int versionOf(String script) {
+        return Integer.parseInt(script.substring(1, script.indexOf("__")));
+    }
+
+    private byte[] load(String script) throws IOException {
+        try (InputStream in = SchemaMigrator.class.getClassLoader().getResourceAsStream(location + script)) {
+            if (in == null)
+                throw new IOException("Migration " + script + " was not found on the classpath.");
+            return in.readAllBytes();
+        }
+    }
+
+    private static String checksum(byte[] contents) {
+        try {
+            StringBuilder hex = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(contents))
+                hex.append(String.format("%02x", b));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package Util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records statements that took longer than a threshold, or failed, with their SQL text, bound parameters, row count
+ * and duration. Each one is logged and kept in a fixed-size ring buffer of the most recent entries, which overwrites
+ * its oldest entry without taking a lock.
+ *
+ * Parameters are redacted unless redaction is turned off, since they can hold passwords and message text.
+ */
+public class SlowQueryLog {
+    private static final Logger log = LoggerFactory.getLogger(SlowQueryLog.class);
+    private static final int MAX_PARAMETER_LENGTH = 100;
+
+    /**
+     * One slow or failed statement.
+     */
+    public static class Entry {
+        public final long timestamp;
+        public final String sql;
+        public final List<String> parameters;
+        public final long rows;
+        public final double duration_ms;
+        public final String error;
+
+        Entry(long timestamp, String sql, List<String> parameters, long rows, double duration_ms, String error) {
+            this.timestamp = timestamp;
+            this.sql = sql;
+            this.parameters = parameters;
+            this.rows = rows;
+            this.duration_ms = duration_ms;
+            this.error = error;
+        }
+    }
+
+    private final long thresholdNanos;
+    private final boolean redactParameters;
+    private final AtomicReferenceArray<Entry> entries;
+    private final AtomicLong next = new AtomicLong();
+
+    /**
+     * Constructor for the slow query log.
+     * @param thresholdMillis Statements that take at least this long are recorded.
+     * @param capacity How many of the most recent entries are kept.
+     * @param redactParameters Whether parameter values are replaced by a placeholder.
+     */
+    public SlowQueryLog(long thresholdMillis, int capacity, boolean redactParameters) {
+        this.thresholdNanos = thresholdMillis * 1_000_000L;
+        this.redactParameters = redactParameters;
+        this.entries = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * Record a finished statement if it was slow or failed.
+     * @param sql The statement's SQL text.
+     * @param parameters The bound parameters, by index from 1, or null if there were none.
+     * @param rows The number of rows read or updated.
+     * @param nanos Time spent executing the statement and reading its results.
+     * @param error The failure's message, or null if the statement succeeded.
+     */
+    void record(String sql, Object[] parameters, long rows, long nanos, String error) {
+        if (nanos < thresholdNanos && error == null)
+            return;
+        List<String> formatted = format(parameters);
+        double millis = nanos / 1e6;
+        if (error == null)
+            log.warn("Slow query took {} ms and read {} rows: {} {}", String.format("%.1f", millis), rows, sql, formatted);
+        else
+            log.warn("Query failed after {} ms: {} {}: {}", String.format("%.1f", millis), sql, formatted, error);
+        Entry entry = new Entry(System.currentTimeMillis(), sql, formatted, rows, millis, error);
+        entries.set((int) (next.getAndIncrement() % entries.length()), entry);
+    }
+
+    /**
+     * @return The recorded entries, newest first.
+     */
+    public List<Entry> getEntries() {
+        long end = next.get();
+        List<Entry> recent = new ArrayList<>();
+        for (long i = end - 1; i >= 0 && i >= end - entries.length(); i--) {
+            Entry entry = entries.get((int) (i % entries.length()));
+            if (entry != null)
+                recent.add(entry);
+        }
+        return recent;
+    }
+
+    private List<String> format(Object[] parameters) {
+        if (parameters == null)
+            return Collections.emptyList();
+        List<String> formatted = new ArrayList<>(parameters.length);
+        for (Object parameter : parameters) {
+            if (redactParameters) {
+                formatted.add("?");
+            } else if (parameter instanceof String) {
+                String value = (String) parameter;
+                formatted.add("'" + (value.length() > MAX_PARAMETER_LENGTH ? value.substring(0, MAX_PARAMETER_LENGTH) + "..." : value) + "'");
+            } else if (parameter instanceof Object[]) {
+                formatted.add(Arrays.toString((Object[]) parameter));
+            } else {
+                formatted.add(String.valueOf(parameter));
+            }
+        }
+        return formatted;
+    }
+}
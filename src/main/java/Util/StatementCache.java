@@ -0,0 +1,206 @@
+package Util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded, least-recently-used cache of prepared statements belonging to one pooled physical connection, keyed by
+ * SQL text and generated-keys mode. A connection is only ever used by one borrower at a time, so the cache is not
+ * thread safe.
+ *
+ * Statements handed out by the cache ignore <code>close()</code> so they can be reused by the next borrower.
+ * Statements evicted while the connection is borrowed are only closed when it is returned, so a borrower never has a
+ * statement closed underneath it.
+ */
+class StatementCache {
+    private static final Logger log = LoggerFactory.getLogger(StatementCache.class);
+
+    private final Connection physical;
+    private final int capacity;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LinkedHashMap<Key, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+    private final List<CachedStatement> inUse = new ArrayList<>();
+    private final List<CachedStatement> evicted = new ArrayList<>();
+
+    /**
+     * Constructor for the statement cache.
+     * @param physical The physical connection statements are prepared on.
+     * @param capacity The maximum number of statements kept open.
+     * @param hits Counter incremented for every statement served from the cache.
+     * @param misses Counter incremented for every statement that had to be prepared.
+     */
+    StatementCache(Connection physical, int capacity, LongAdder hits, LongAdder misses) {
+        this.physical = physical;
+        this.capacity = capacity;
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    /**
+     * Get a prepared statement for the given SQL, reusing a cached one when possible.
+     * @param sql The SQL text of the statement.
+     * @param autoGeneratedKeys Either <code>Statement.RETURN_GENERATED_KEYS</code> or <code>Statement.NO_GENERATED_KEYS</code>.
+     * @return A statement with its parameters cleared, or null if the statement is already in use by this borrower
+     * and a separate uncached statement should be prepared instead.
+     */
+    PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+        Key key = new Key(sql, autoGeneratedKeys);
+        CachedStatement cached = statements.get(key);
+        if (cached != null) {
+            if (cached.inUse)
+                return null;
+            hits.increment();
+            cached.delegate.clearParameters();
+        } else {
+            misses.increment();
+            cached = new CachedStatement(physical.prepareStatement(sql, autoGeneratedKeys));
+            statements.put(key, cached);
+            evictOverCapacity();
+        }
+        cached.inUse = true;
+        inUse.add(cached);
+        return cached.proxy;
+    }
+
+    /**
+     * Called when the connection is returned to the pool. Closes statements that were evicted or reconfigured
+     * during the borrow and makes every other statement available to the next borrower.
+     */
+    void release() {
+        for (CachedStatement cached : inUse) {
+            cached.inUse = false;
+            if (cached.dirty) {
+                statements.values().remove(cached);
+                evicted.add(cached);
+            }
+        }
+        inUse.clear();
+        for (CachedStatement cached : evicted)
+            closeQuietly(cached);
+        evicted.clear();
+    }
+
+    /**
+     * Close every cached statement. Called when the connection is retired from the pool.
+     */
+    void closeAll() {
+        for (CachedStatement cached : statements.values())
+            closeQuietly(cached);
+        statements.clear();
+        for (CachedStatement cached : evicted)
+            closeQuietly(cached);
+        evicted.clear();
+        inUse.clear();
+    }
+
+    /**
+     * @return The number of statements currently cached.
+     */
+    int size() {
+        return statements.size();
+    }
+
+    private void evictOverCapacity() {
+        Iterator<CachedStatement> leastRecentFirst = statements.values().iterator();
+        while (statements.size() > capacity && leastRecentFirst.hasNext()) {
+            CachedStatement cached = leastRecentFirst.next();
+            leastRecentFirst.remove();
+            if (cached.inUse)
+                evicted.add(cached);
+            else
+                closeQuietly(cached);
+        }
+    }
+
+    private static void closeQuietly(CachedStatement cached) {
+        try {
+            cached.delegate.close();
+        } catch (SQLException e) {
+            log.debug("Could not close cached statement: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Cache key made of the SQL text and the generated-keys mode it was prepared with.
+     */
+    private static class Key {
+        final String sql;
+        final int autoGeneratedKeys;
+
+        Key(String sql, int autoGeneratedKeys) {
+            this.sql = sql;
+            this.autoGeneratedKeys = autoGeneratedKeys;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return autoGeneratedKeys == key.autoGeneratedKeys && sql.equals(key.sql);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * sql.hashCode() + autoGeneratedKeys;
+        }
+    }
+
+    /**
+     * A cached statement and the proxy handed to borrowers. Changing per-statement settings marks the statement
+     * dirty so that it is discarded instead of leaking those settings to the next borrower.
+     */
+    private static class CachedStatement implements InvocationHandler {
+        final PreparedStatement delegate;
+        final PreparedStatement proxy;
+        boolean inUse;
+        boolean dirty;
+
+        CachedStatement(PreparedStatement delegate) {
+            this.delegate = delegate;
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class<?>[] { PreparedStatement.class }, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    return null;
+                case "isClosed":
+                    return !inUse || delegate.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Cached" + delegate;
+                default:
+                    break;
+            }
+            if (name.startsWith("set") && method.getDeclaringClass() == Statement.class)
+                dirty = true;
+            try {
+                return method.invoke(delegate, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
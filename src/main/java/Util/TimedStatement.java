@@ -0,0 +1,186 @@
+package Util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+/**
+ * Wraps a statement handed to a borrower so that each execution is timed and reported to the {@link SlowQueryLog}.
+ * An execution's time is the time spent executing it plus the time spent in <code>ResultSet.next()</code> reading its
+ * results, so slow result iteration is caught as well as slow planning.
+ *
+ * An execution is finished, and reported, when its results are exhausted or closed, when the statement is executed
+ * again or closed, or when the connection is returned to the pool, whichever comes first, since the DAOs often stop
+ * reading after the first row. Like the connection it belongs to, a statement is only used by one thread at a time.
+ */
+class TimedStatement implements InvocationHandler {
+    private static final Object[] NO_PARAMETERS = new Object[0];
+
+    private final Statement delegate;
+    private final String preparedSql;
+    private final SlowQueryLog slowQueryLog;
+    final Statement proxy;
+
+    private Object[] parameters = NO_PARAMETERS;
+    private int batchSize;
+
+    // The current execution.
+    private boolean executing;
+    private int execution;
+    private String sql;
+    private Object[] executedParameters;
+    private long nanos;
+    private long rows;
+
+    /**
+     * Constructor for a timed statement.
+     * @param delegate The statement to time.
+     * @param preparedSql The SQL the statement was prepared with, or null for a plain statement.
+     * @param slowQueryLog Receives each finished execution.
+     */
+    TimedStatement(Statement delegate, String preparedSql, SlowQueryLog slowQueryLog) {
+        this.delegate = delegate;
+        this.preparedSql = preparedSql;
+        this.slowQueryLog = slowQueryLog;
+        Class<?> type = delegate instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        this.proxy = (Statement) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, this);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        switch (name) {
+            case "close":
+                finish(null);
+                break;
+            case "clearParameters":
+                parameters = NO_PARAMETERS;
+                break;
+            case "addBatch":
+                batchSize++;
+                break;
+            case "clearBatch":
+                batchSize = 0;
+                break;
+            case "getResultSet":
+            case "getGeneratedKeys":
+                return wrap((ResultSet) forward(method, args));
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                if (name.startsWith("execute"))
+                    return execute(method, args);
+                if (name.startsWith("set") && method.getDeclaringClass() == PreparedStatement.class && args.length >= 2)
+                    bind((Integer) args[0], name.equals("setNull") ? null : args[1]);
+                break;
+        }
+        return forward(method, args);
+    }
+
+    private Object execute(Method method, Object[] args) throws Throwable {
+        finish(null);
+        executing = true;
+        execution++;
+        sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+        executedParameters = batchSize > 0 ? new Object[] { "batch of " + batchSize } : parameters.length > 0 ? parameters.clone() : null;
+        batchSize = 0;
+        nanos = 0;
+        rows = 0;
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = method.invoke(delegate, args);
+        } catch (InvocationTargetException e) {
+            nanos += System.nanoTime() - start;
+            finish(e.getCause().getMessage());
+            throw e.getCause();
+        }
+        nanos += System.nanoTime() - start;
+        if (result instanceof ResultSet)
+            return wrap((ResultSet) result);
+        if (result instanceof Integer || result instanceof Long) {
+            rows = ((Number) result).longValue();
+            finish(null);
+        } else if (result instanceof int[]) {
+            rows = Arrays.stream((int[]) result).filter(count -> count > 0).sum();
+            finish(null);
+        } else if (result instanceof long[]) {
+            rows = Arrays.stream((long[]) result).filter(count -> count > 0).sum();
+            finish(null);
+        } else if (Boolean.FALSE.equals(result)) {
+            // execute() without a result set; its results are an update count.
+            rows = Math.max(0, delegate.getUpdateCount());
+            finish(null);
+        }
+        return result;
+    }
+
+    private void bind(int index, Object value) {
+        if (index > parameters.length)
+            parameters = Arrays.copyOf(parameters, index);
+        parameters[index - 1] = value;
+    }
+
+    /**
+     * Report the current execution, if it hasn't been already.
+     * @param error The failure's message, or null if the execution succeeded.
+     */
+    void finish(String error) {
+        if (!executing)
+            return;
+        executing = false;
+        slowQueryLog.record(sql, executedParameters, rows, nanos, error);
+    }
+
+    private ResultSet wrap(ResultSet results) {
+        if (results == null || !executing)
+            return results;
+        int owner = execution;
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class }, (resultsProxy, method, args) -> {
+            String name = method.getName();
+            boolean current = executing && execution == owner;
+            if (name.equals("next") && current) {
+                long start = System.nanoTime();
+                boolean hasRow;
+                try {
+                    hasRow = (Boolean) forward(results, method, args);
+                } catch (SQLException e) {
+                    nanos += System.nanoTime() - start;
+                    finish(e.getMessage());
+                    throw e;
+                }
+                nanos += System.nanoTime() - start;
+                if (hasRow)
+                    rows++;
+                else
+                    finish(null);
+                return hasRow;
+            }
+            if (name.equals("close") && current)
+                finish(null);
+            if (name.equals("getStatement"))
+                return proxy;
+            return forward(results, method, args);
+        });
+    }
+
+    private Object forward(Method method, Object[] args) throws Throwable {
+        return forward(delegate, method, args);
+    }
+
+    private static Object forward(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
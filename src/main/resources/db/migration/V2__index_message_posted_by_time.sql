@@ -0,0 +1,3 @@
+-- Serves per-account listings in time_posted_epoch order as an index range scan. Listings in message_id order
+-- already use the index H2 creates for the posted_by foreign key, whose entries end with the row key.
+create index if not exists message_posted_by_time_idx on message (posted_by, time_posted_epoch);
@@ -0,0 +1,2 @@
+-- Serves the global listing in time_posted_epoch order as an index range scan.
+create index if not exists message_time_idx on message (time_posted_epoch);
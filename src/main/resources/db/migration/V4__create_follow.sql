@@ -0,0 +1,10 @@
+-- Who follows whom. The primary key serves a user's followees, and the second index serves an account's followers,
+-- which are read to fan each new message out to its followers' home timelines.
+create table if not exists follow (
+    follower_id int not null,
+    followee_id int not null,
+    primary key (follower_id, followee_id),
+    foreign key (follower_id) references account(account_id),
+    foreign key (followee_id) references account(account_id)
+);
+create index if not exists follow_followee_idx on follow (followee_id, follower_id);
@@ -0,0 +1,5 @@
+-- Replaces message_time_idx. Time-ordered listings break ties by message_id, and H2 doesn't count the row key at the
+-- end of an index as part of its order, so with message_time_idx every row in range was sorted before the page was
+-- cut. Indexing both columns lets a page stop after its last row, however wide the range.
+drop index if exists message_time_idx;
+create index if not exists message_time_id_idx on message (time_posted_epoch, message_id);
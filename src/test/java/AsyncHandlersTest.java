@@ -0,0 +1,165 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Message;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class AsyncHandlersTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app with the database executor enabled, and create a
+     * new webClient and ObjectMapper for interacting locally on the web. The executor has one thread and room for one
+     * queued task, so that a test can saturate it.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        System.setProperty("db.executor.enabled", "true");
+        System.setProperty("db.executor.threads", "1");
+        System.setProperty("db.executor.queueCapacity", "1");
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+        System.clearProperty("db.executor.enabled");
+        System.clearProperty("db.executor.threads");
+        System.clearProperty("db.executor.queueCapacity");
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages, then GET localhost:8080/messages/2
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: JSON representation of the new message, both times
+     */
+    @Test
+    public void postThenGetMessage() throws IOException, InterruptedException {
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{"+
+                        "\"posted_by\":1, " +
+                        "\"message_text\": \"hello message\", " +
+                        "\"time_posted_epoch\": 1669947792}"))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> postResponse = webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+        HttpRequest getMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/2"))
+                .build();
+        HttpResponse<String> getResponse = webClient.send(getMessageRequest, HttpResponse.BodyHandlers.ofString());
+
+        Message expectedResult = new Message(2, 1, "hello message", 1669947792);
+        Assert.assertEquals(200, postResponse.statusCode());
+        Assert.assertEquals(expectedResult, objectMapper.readValue(postResponse.body(), Message.class));
+        Assert.assertEquals(200, getResponse.statusCode());
+        Assert.assertEquals(expectedResult, objectMapper.readValue(getResponse.body(), Message.class));
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: JSON representation of a list of messages
+     */
+    @Test
+    public void getAllMessages() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+
+        Assert.assertEquals(200, response.statusCode());
+        List<Message> expectedResult = new ArrayList<>();
+        expectedResult.add(new Message(1, 1, "test message 1", 1669947792));
+        Assert.assertEquals(expectedResult, objectMapper.readValue(response.body(), new TypeReference<List<Message>>(){}));
+    }
+
+    /**
+     * Sending an http request to PATCH localhost:8080/messages/100, which doesn't exist
+     *
+     * Expected Response:
+     *  Status Code: 400
+     *  Response Body:
+     */
+    @Test
+    public void patchMissingMessage() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/100"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{"+
+                        "\"message_text\": \"updated message\" }"))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+
+        Assert.assertEquals(400, response.statusCode());
+        Assert.assertEquals("", response.body());
+    }
+
+    /**
+     * Sending three http requests to GET localhost:8080/messages while every pooled connection is borrowed, so the
+     * first request holds the executor's only thread and the second fills its queue
+     *
+     * Expected Response:
+     *  Status Code: 503 for the third request, at once, and 200 for the first two once connections are returned
+     *  Response Body: Empty for the third request
+     */
+    @Test
+    public void saturatedExecutorFailsFast() throws Exception {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .build();
+        List<Connection> borrowed = new ArrayList<>();
+        List<CompletableFuture<HttpResponse<String>>> waiting = new ArrayList<>();
+        try {
+            // Connections an earlier test never returned still count against the pool.
+            int available = ConnectionUtil.getPool().getMaxSize() - ConnectionUtil.getPool().getActiveCount();
+            for (int i = 0; i < available; i++)
+                borrowed.add(ConnectionUtil.getConnection());
+            for (int i = 0; i < 2; i++) {
+                waiting.add(webClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+                Thread.sleep(200);
+            }
+            long start = System.nanoTime();
+            HttpResponse<String> rejected = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+            Assert.assertEquals(503, rejected.statusCode());
+            Assert.assertEquals("", rejected.body());
+            Assert.assertTrue(System.nanoTime() - start < 1_000_000_000L);
+        } finally {
+            for (Connection connection : borrowed)
+                connection.close();
+        }
+        for (CompletableFuture<HttpResponse<String>> response : waiting)
+            Assert.assertEquals(200, response.get().statusCode());
+    }
+}
@@ -0,0 +1,127 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Message;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class BatchCreateMessagesTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages/batch with a mix of valid and invalid messages
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: A result per message, in order, holding the created message or the reason it was rejected
+     */
+    @Test
+    public void batchReportsEachMessageInOrder() throws IOException, InterruptedException {
+        List<Message> batch = List.of(
+                new Message(1, "first in batch", 1669947800),
+                new Message(1, "", 1669947801),
+                new Message(9, "unknown poster", 1669947802),
+                new Message(1, "x".repeat(255), 1669947803),
+                new Message(1, "second in batch", 1669947804));
+        HttpResponse<String> response = send("POST", "/messages/batch", objectMapper.writeValueAsString(batch));
+
+        Assert.assertEquals(200, response.statusCode());
+        JsonNode results = objectMapper.readTree(response.body());
+        Assert.assertEquals(5, results.size());
+        Assert.assertEquals(200, results.get(0).get("status").asInt());
+        Assert.assertEquals(new Message(2, 1, "first in batch", 1669947800),
+                objectMapper.treeToValue(results.get(0).get("message"), Message.class));
+        Assert.assertFalse(results.get(0).has("error"));
+        for (int i = 1; i <= 3; i++) {
+            Assert.assertEquals(400, results.get(i).get("status").asInt());
+            Assert.assertFalse(results.get(i).has("message"));
+            Assert.assertFalse(results.get(i).get("error").asText().isEmpty());
+        }
+        Assert.assertEquals(new Message(3, 1, "second in batch", 1669947804),
+                objectMapper.treeToValue(results.get(4).get("message"), Message.class));
+
+        HttpResponse<String> created = send("GET", "/messages/3", null);
+        Assert.assertEquals(new Message(3, 1, "second in batch", 1669947804),
+                objectMapper.readValue(created.body(), Message.class));
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages/batch with an empty array
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: An empty array
+     */
+    @Test
+    public void emptyBatchCreatesNothing() throws IOException, InterruptedException {
+        HttpResponse<String> response = send("POST", "/messages/batch", "[]");
+
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertEquals("[]", response.body());
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages/batch with more messages than a batch may hold
+     *
+     * Expected Response:
+     *  Status Code: 400
+     *  Response Body: Empty, and no message is created
+     */
+    @Test
+    public void oversizedBatchIsRejected() throws IOException, InterruptedException {
+        Message[] batch = new Message[1001];
+        for (int i = 0; i < batch.length; i++)
+            batch[i] = new Message(1, "message " + i, 1669947792);
+        HttpResponse<String> response = send("POST", "/messages/batch", objectMapper.writeValueAsString(batch));
+
+        Assert.assertEquals(400, response.statusCode());
+        Assert.assertEquals("", response.body());
+        Assert.assertEquals("", send("GET", "/messages/2", null).body());
+    }
+}
@@ -0,0 +1,134 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import Controller.SocialMediaController;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class ConditionalGetTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient for interacting
+     * locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    private HttpResponse<String> get(String path, String ifNoneMatch) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder().uri(URI.create("http://localhost:8080" + path));
+        if (ifNoneMatch != null)
+            request.header("If-None-Match", ifNoneMatch);
+        return webClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void send(String method, String path, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+        Assert.assertEquals(200, webClient.send(request, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    private static String etag(HttpResponse<String> response) {
+        String etag = response.headers().firstValue("ETag").orElse(null);
+        Assert.assertNotNull(etag);
+        return etag;
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/1 with the ETag of a previous response, before and after
+     * the message is patched and deleted
+     *
+     * Expected Response:
+     *  Status Code: 304 with an empty body while the message is unchanged, and 200 with a new ETag after each change
+     */
+    @Test
+    public void messageIsNotResentUntilItChanges() throws IOException, InterruptedException {
+        HttpResponse<String> first = get("/messages/1", null);
+        Assert.assertEquals(200, first.statusCode());
+        String etag = etag(first);
+
+        HttpResponse<String> unchanged = get("/messages/1", etag);
+        Assert.assertEquals(304, unchanged.statusCode());
+        Assert.assertEquals("", unchanged.body());
+        Assert.assertEquals(etag, etag(unchanged));
+        Assert.assertEquals(304, get("/messages/1", "\"other\", W/" + etag).statusCode());
+
+        send("PATCH", "/messages/1", "{\"message_text\": \"updated message\"}");
+        HttpResponse<String> patched = get("/messages/1", etag);
+        Assert.assertEquals(200, patched.statusCode());
+        Assert.assertTrue(patched.body().contains("updated message"));
+        Assert.assertNotEquals(etag, etag(patched));
+
+        send("DELETE", "/messages/1", null);
+        HttpResponse<String> deleted = get("/messages/1", etag(patched));
+        Assert.assertEquals(200, deleted.statusCode());
+        Assert.assertEquals("", deleted.body());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/1/messages with the ETag of a previous response, before
+     * and after the user posts a message
+     *
+     * Expected Response:
+     *  Status Code: 304 while the user's messages are unchanged, and 200 with the new message after the post
+     */
+    @Test
+    public void timelineIsNotResentUntilItChanges() throws IOException, InterruptedException {
+        HttpResponse<String> first = get("/accounts/1/messages", null);
+        Assert.assertEquals(200, first.statusCode());
+        String etag = etag(first);
+        Assert.assertEquals(304, get("/accounts/1/messages", etag).statusCode());
+        Assert.assertEquals(304, get("/accounts/1/messages?stream=true", etag).statusCode());
+
+        send("POST", "/messages", "{\"posted_by\": 1, \"message_text\": \"another message\", \"time_posted_epoch\": 1669947793}");
+        HttpResponse<String> posted = get("/accounts/1/messages", etag);
+        Assert.assertEquals(200, posted.statusCode());
+        Assert.assertTrue(posted.body().contains("another message"));
+        Assert.assertNotEquals(etag, etag(posted));
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/{id} with <code>If-None-Match: *</code>, for a message
+     * that exists and for one that doesn't
+     *
+     * Expected Response:
+     *  Status Code: 200 in both cases, since the wildcard is not honoured
+     *  Response Body: The message for the existing ID, and empty for the missing one
+     */
+    @Test
+    public void wildcardIsNotAnsweredWithNotModified() throws IOException, InterruptedException {
+        HttpResponse<String> existing = get("/messages/1", "*");
+        Assert.assertEquals(200, existing.statusCode());
+        Assert.assertTrue(existing.body().contains("test message 1"));
+
+        HttpResponse<String> missing = get("/messages/100", "*");
+        Assert.assertEquals(200, missing.statusCode());
+        Assert.assertEquals("", missing.body());
+    }
+}
@@ -0,0 +1,208 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Message;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class HomeFeedTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, add users 2 to 4, restart the Javalin app with accounts counted as
+     * popular from two followers, and create a new webClient and ObjectMapper for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException, SQLException {
+        ConnectionUtil.resetTestDatabase();
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            connection.createStatement().execute("INSERT INTO account (username, password) "
+                    + "SELECT 'testuser' || X, 'password' FROM SYSTEM_RANGE(2, 4)");
+        }
+        System.setProperty("timelines.popularFollowers", "2");
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+        System.clearProperty("timelines.popularFollowers");
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private int post(int postedBy, String text) throws IOException, InterruptedException {
+        HttpResponse<String> response = send("POST", "/messages",
+                objectMapper.writeValueAsString(new Message(postedBy, text, 1669947792)));
+        Assert.assertEquals(200, response.statusCode());
+        return objectMapper.readValue(response.body(), Message.class).message_id;
+    }
+
+    private void follow(int follower, int followee) throws IOException, InterruptedException {
+        Assert.assertEquals(200, send("PUT", "/accounts/" + follower + "/following/" + followee, null).statusCode());
+    }
+
+    private List<Message> feed(String path) throws IOException, InterruptedException {
+        HttpResponse<String> response = send("GET", path, null);
+        Assert.assertEquals(200, response.statusCode());
+        return objectMapper.readValue(response.body(), new TypeReference<List<Message>>() {});
+    }
+
+    private static int[] ids(List<Message> messages) {
+        return messages.stream().mapToInt(message -> message.message_id).toArray();
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/accounts/2/feed as user 2 follows and unfollows users 1 and 3, who
+     * post before and after the feed is first read
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: The messages of the users followed at the time, newest first, without the user's own or anyone else's
+     */
+    @Test
+    public void feedHoldsMessagesOfFollowedUsers() throws IOException, InterruptedException {
+        int older = post(3, "before the follow");
+        post(4, "not followed");
+        post(2, "my own message");
+        follow(2, 1);
+        follow(2, 3);
+        Assert.assertArrayEquals(new int[] { older, 1 }, ids(feed("/accounts/2/feed")));
+
+        int newer = post(3, "after the feed was read");
+        Assert.assertArrayEquals(new int[] { newer, older, 1 }, ids(feed("/accounts/2/feed")));
+        Assert.assertEquals(List.of(1, 3), objectMapper.readValue(send("GET", "/accounts/2/following", null).body(),
+                new TypeReference<List<Integer>>() {}));
+
+        Assert.assertEquals(200, send("DELETE", "/accounts/2/following/3", null).statusCode());
+        Assert.assertArrayEquals(new int[] { 1 }, ids(feed("/accounts/2/feed")));
+        Assert.assertArrayEquals(new int[] {}, ids(feed("/accounts/4/feed")));
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/accounts/2/feed after user 1 gains enough followers to be popular
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: The popular user's messages merged with the rest, newest first, and deleted messages left out
+     */
+    @Test
+    public void popularAccountsAreMergedWhenRead() throws IOException, InterruptedException {
+        follow(2, 3);
+        follow(2, 1);
+        Assert.assertArrayEquals(new int[] { 1 }, ids(feed("/accounts/2/feed")));
+        follow(4, 1);
+
+        int first = post(1, "popular message");
+        int second = post(3, "ordinary message");
+        int third = post(1, "another popular message");
+        Assert.assertArrayEquals(new int[] { third, second, first, 1 }, ids(feed("/accounts/2/feed")));
+        Assert.assertArrayEquals(new int[] { third, first, 1 }, ids(feed("/accounts/4/feed")));
+
+        Assert.assertEquals(200, send("DELETE", "/messages/" + second, null).statusCode());
+        Assert.assertArrayEquals(new int[] { third, first, 1 }, ids(feed("/accounts/2/feed")));
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/2/feed?limit=1000 after a popular account user 2 follows
+     * has posted a full timeline's worth of messages since user 3 last posted
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: The popular account's messages, and user 3's older message as well
+     */
+    @Test
+    public void busyPopularAccountDoesNotCrowdOutOthers() throws IOException, InterruptedException {
+        follow(2, 3);
+        follow(2, 1);
+        follow(4, 1);
+        int older = post(3, "before the burst");
+        Message[] burst = new Message[400];
+        for (int i = 0; i < burst.length; i++)
+            burst[i] = new Message(1, "burst " + i, 1669947792);
+        Assert.assertEquals(200, send("POST", "/messages/batch", objectMapper.writeValueAsString(burst)).statusCode());
+
+        int[] feed = ids(feed("/accounts/2/feed?limit=1000"));
+        Assert.assertEquals(401, feed.length);
+        Assert.assertEquals(older, feed[feed.length - 1]);
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/accounts/2/feed?limit=2 and following the X-Next-Cursor header
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: Pages of two messages, newest first, until the feed is exhausted
+     */
+    @Test
+    public void feedIsPaginated() throws IOException, InterruptedException {
+        follow(2, 3);
+        int[] posted = new int[5];
+        for (int i = 0; i < posted.length; i++)
+            posted[i] = post(3, "message " + i);
+
+        HttpResponse<String> first = send("GET", "/accounts/2/feed?limit=2", null);
+        String cursor = first.headers().firstValue("X-Next-Cursor").orElse(null);
+        Assert.assertNotNull(cursor);
+        Assert.assertArrayEquals(new int[] { posted[4], posted[3] }, ids(objectMapper.readValue(first.body(),
+                new TypeReference<List<Message>>() {})));
+        HttpResponse<String> second = send("GET", "/accounts/2/feed?limit=2&after=" + cursor, null);
+        Assert.assertArrayEquals(new int[] { posted[2], posted[1] }, ids(objectMapper.readValue(second.body(),
+                new TypeReference<List<Message>>() {})));
+        HttpResponse<String> last = send("GET", "/accounts/2/feed?limit=2&after="
+                + second.headers().firstValue("X-Next-Cursor").orElseThrow(), null);
+        Assert.assertArrayEquals(new int[] { posted[0] }, ids(objectMapper.readValue(last.body(),
+                new TypeReference<List<Message>>() {})));
+        Assert.assertFalse(last.headers().firstValue("X-Next-Cursor").isPresent());
+    }
+
+    /**
+     * Sending http requests to PUT localhost:8080/accounts/2/following/2, PUT localhost:8080/accounts/2/following/9
+     * and GET localhost:8080/accounts/2/feed?after=x
+     *
+     * Expected Response:
+     *  Status Code: 400
+     *  Response Body: Empty
+     */
+    @Test
+    public void invalidFollowsAndCursorsAreRejected() throws IOException, InterruptedException {
+        for (String[] request : new String[][] { { "PUT", "/accounts/2/following/2" }, { "PUT", "/accounts/2/following/9" },
+                { "DELETE", "/accounts/9/following/2" }, { "GET", "/accounts/2/feed?after=x" },
+                { "GET", "/accounts/2/feed?limit=0" } }) {
+            HttpResponse<String> response = send(request[0], request[1], null);
+            Assert.assertEquals(request[1], 400, response.statusCode());
+            Assert.assertEquals("", response.body());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Message;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class MessageCacheReadAfterWriteTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(200, response.statusCode());
+        return response;
+    }
+
+    private long cacheHits() throws IOException, InterruptedException {
+        for (String line : send("GET", "/metrics", null).body().split("\n"))
+            if (line.startsWith("message_cache_hits_total "))
+                return (long) Double.parseDouble(line.substring(line.indexOf(' ') + 1));
+        throw new AssertionError("The metrics don't report message cache hits.");
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/messages/1 twice, then PATCH localhost:8080/messages/1, then GET
+     * localhost:8080/messages/1 and POST localhost:8080/messages/lookup
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: The second read is served from the cache, and both reads after the patch return the new text
+     */
+    @Test
+    public void patchedMessageIsNotServedFromCache() throws IOException, InterruptedException {
+        send("GET", "/messages/1", null);
+        long hits = cacheHits();
+        Assert.assertEquals("test message 1", objectMapper.readValue(send("GET", "/messages/1", null).body(), Message.class).message_text);
+        Assert.assertEquals(hits + 1, cacheHits());
+
+        send("PATCH", "/messages/1", "{\"message_text\": \"updated message\"}");
+
+        Message expected = new Message(1, 1, "updated message", 1669947792);
+        Assert.assertEquals(expected, objectMapper.readValue(send("GET", "/messages/1", null).body(), Message.class));
+        Assert.assertEquals(expected, objectMapper.readValue(send("POST", "/messages/lookup", "[1]").body(), Message[].class)[0]);
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/messages/1, then DELETE localhost:8080/messages/1, then GET
+     * localhost:8080/messages/1
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: Empty after the delete
+     */
+    @Test
+    public void deletedMessageIsNotServedFromCache() throws IOException, InterruptedException {
+        Assert.assertNotEquals("", send("GET", "/messages/1", null).body());
+        Assert.assertNotEquals("", send("GET", "/messages/1", null).body());
+
+        send("DELETE", "/messages/1", null);
+
+        Assert.assertEquals("", send("GET", "/messages/1", null).body());
+    }
+}
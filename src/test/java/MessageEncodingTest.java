@@ -0,0 +1,83 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Message;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class MessageEncodingTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages with text that needs escaping, then GET
+     * localhost:8080/messages/2 and GET localhost:8080/accounts/1/messages
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: Exactly the bytes Jackson writes for the message, or for a list holding it
+     */
+    @Test
+    public void messageTextRoundTripsAsJacksonWritesIt() throws IOException, InterruptedException {
+        String text = "say \"hi\" \\ / tab\t newline\n bell\u0007 caf\u00e9 \uD83D\uDE00 \u2028";
+        Message expected = new Message(2, 1, text, 1669947792);
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(new Message(1, text, 1669947792))))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<byte[]> posted = webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofByteArray());
+        Assert.assertEquals(200, posted.statusCode());
+        Assert.assertArrayEquals(objectMapper.writeValueAsBytes(expected), posted.body());
+
+        HttpRequest getMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/2"))
+                .build();
+        HttpResponse<byte[]> fetched = webClient.send(getMessageRequest, HttpResponse.BodyHandlers.ofByteArray());
+        Assert.assertEquals(200, fetched.statusCode());
+        Assert.assertTrue(fetched.headers().firstValue("Content-Type").orElse("").startsWith("application/json"));
+        Assert.assertArrayEquals(objectMapper.writeValueAsBytes(expected), fetched.body());
+
+        HttpRequest listRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/1/messages"))
+                .build();
+        HttpResponse<byte[]> listed = webClient.send(listRequest, HttpResponse.BodyHandlers.ofByteArray());
+        Assert.assertEquals(200, listed.statusCode());
+        Message first = new Message(1, 1, "test message 1", 1669947792);
+        Assert.assertArrayEquals(objectMapper.writeValueAsBytes(new Message[] { first, expected }), listed.body());
+    }
+}
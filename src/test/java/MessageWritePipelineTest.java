@@ -0,0 +1,146 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import DAO.MessageDAO;
+import Model.Message;
+import Service.MessageWritePipeline;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class MessageWritePipelineTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app with the write pipeline enabled and lingering so
+     * that concurrent posts share batches, and create a new webClient and ObjectMapper for interacting locally on the
+     * web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        System.setProperty("messages.writePipeline.enabled", "true");
+        System.setProperty("messages.writePipeline.lingerMs", "20");
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+        System.clearProperty("messages.writePipeline.enabled");
+        System.clearProperty("messages.writePipeline.lingerMs");
+    }
+
+    /**
+     * Sending 50 concurrent http requests to POST localhost:8080/messages, then GET localhost:8080/messages
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: Each new message with its own generated ID, and every message listed afterwards
+     */
+    @Test
+    public void concurrentPostsGetDistinctIDs() throws IOException, InterruptedException {
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/messages"))
+                    .POST(HttpRequest.BodyPublishers.ofString(
+                            objectMapper.writeValueAsString(new Message(1, "message " + i, 1669947792))))
+                    .header("Content-Type", "application/json")
+                    .build();
+            responses.add(webClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        }
+        Set<Integer> ids = new HashSet<>();
+        for (int i = 0; i < responses.size(); i++) {
+            HttpResponse<String> response = responses.get(i).join();
+            Assert.assertEquals(200, response.statusCode());
+            Message message = objectMapper.readValue(response.body(), Message.class);
+            Assert.assertEquals("message " + i, message.message_text);
+            Assert.assertTrue(ids.add(message.message_id));
+        }
+
+        HttpResponse<String> listing = webClient.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages?limit=1000")).build(), HttpResponse.BodyHandlers.ofString());
+        List<Message> messages = objectMapper.readValue(listing.body(), new TypeReference<List<Message>>() {});
+        Assert.assertEquals(51, messages.size());
+    }
+
+    /**
+     * Submitting a batch to the pipeline in which one message's poster doesn't exist
+     *
+     * Expected Result:
+     *  The batch fails as a whole, each message is retried on its own, and only the bad message is left without an ID
+     */
+    @Test
+    public void badMessageDoesNotFailItsBatch() {
+        MessageWritePipeline pipeline = new MessageWritePipeline(new MessageDAO(), 16, 1000, 64);
+        List<CompletableFuture<Message>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < 5; i++)
+                results.add(pipeline.submit(new Message(i == 2 ? 99 : 1, "batched " + i, 1669947792)));
+        } finally {
+            pipeline.close();
+        }
+
+        Set<Integer> ids = new HashSet<>();
+        for (int i = 0; i < results.size(); i++) {
+            Message message = results.get(i).join();
+            if (i == 2) {
+                Assert.assertNull(message);
+            } else {
+                Assert.assertNotNull(message);
+                Assert.assertTrue(ids.add(message.message_id));
+            }
+        }
+        // The seeded message and the four good ones; nothing of the failed batch is left behind.
+        Assert.assertEquals(5, new MessageDAO().getAllMessages().size());
+    }
+
+    /**
+     * Closing the pipeline while messages are queued behind a long linger
+     *
+     * Expected Result:
+     *  Every queued message is written before close() returns, and later submissions are refused
+     */
+    @Test
+    public void closeDrainsTheQueue() {
+        MessageWritePipeline pipeline = new MessageWritePipeline(new MessageDAO(), 4, 60000, 64);
+        List<CompletableFuture<Message>> results = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+            results.add(pipeline.submit(new Message(1, "queued " + i, 1669947792)));
+        pipeline.close();
+
+        for (int i = 0; i < results.size(); i++) {
+            Assert.assertTrue(results.get(i).isDone());
+            Message message = results.get(i).join();
+            Assert.assertNotNull(message);
+            Assert.assertEquals(message, new MessageDAO().getMessageByID(message.message_id));
+        }
+        Assert.assertNull(pipeline.submit(new Message(1, "too late", 1669947792)).join());
+    }
+}
@@ -0,0 +1,104 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import Controller.SocialMediaController;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class MetricsTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient for interacting
+     * locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * @return The value of a sample in a scrape, or 0 if the series doesn't exist yet. Metrics are process-wide, so
+     * tests compare samples before and after rather than expecting absolute values.
+     */
+    private static double sample(String scrape, String series) {
+        for (String line : scrape.split("\n"))
+            if (line.startsWith(series + " "))
+                return Double.parseDouble(line.substring(series.length() + 1));
+        return 0;
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/messages/1 twice, then GET localhost:8080/metrics
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: Prometheus text, counting both requests against the route and the DAO call behind the first
+     */
+    @Test
+    public void metricsCountRequestsByRoute() throws IOException, InterruptedException {
+        String before = get("/metrics").body();
+        get("/messages/1");
+        get("/messages/1");
+        HttpResponse<String> response = get("/metrics");
+
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/plain"));
+        String after = response.body();
+        String requests = "http_requests_total{method=\"GET\",route=\"/messages/{id}\",status=\"200\"}";
+        Assert.assertEquals(2, sample(after, requests) - sample(before, requests), 0);
+        String latency = "http_request_duration_seconds_count{method=\"GET\",route=\"/messages/{id}\"}";
+        Assert.assertEquals(2, sample(after, latency) - sample(before, latency), 0);
+        // The second request is served from the message cache.
+        String dao = "dao_call_duration_seconds_count{dao=\"MessageDAO\",method=\"getMessageByID\"}";
+        Assert.assertEquals(1, sample(after, dao) - sample(before, dao), 0);
+        Assert.assertTrue(after.contains("# TYPE http_request_duration_seconds histogram"));
+        Assert.assertTrue(after.contains("db_pool_max_connections "));
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/no/such/route, then GET localhost:8080/metrics
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: Prometheus text, counting the 404 against a single series for unmatched paths
+     */
+    @Test
+    public void metricsGroupUnmatchedPaths() throws IOException, InterruptedException {
+        String before = get("/metrics").body();
+        Assert.assertEquals(404, get("/no/such/route").statusCode());
+        String after = get("/metrics").body();
+
+        String unmatched = "http_requests_total{method=\"GET\",route=\"unmatched\",status=\"404\"}";
+        Assert.assertEquals(1, sample(after, unmatched) - sample(before, unmatched), 0);
+        Assert.assertFalse(after.contains("/no/such/route"));
+    }
+}
@@ -0,0 +1,87 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Account;
+import Model.Message;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class PostAfterRegistrationTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private long metric(String name) throws IOException, InterruptedException {
+        for (String line : send("GET", "/metrics", null).body().split("\n"))
+            if (line.startsWith(name + " "))
+                return (long) Double.parseDouble(line.substring(line.indexOf(' ') + 1));
+        throw new AssertionError("The metrics don't report " + name + ".");
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/register, then POST localhost:8080/messages as the new user
+     * straight away, then as a user that doesn't exist
+     *
+     * Expected Response:
+     *  Status Code: 200 for the new user, whose check is answered by the account ID cache; 400 for the missing user
+     *  Response Body: JSON representation of the new user's message
+     */
+    @Test
+    public void registeredUserCanPostImmediately() throws IOException, InterruptedException {
+        HttpResponse<String> registerResponse = send("POST", "/register", "{\"username\": \"newuser\", \"password\": \"password\"}");
+        Assert.assertEquals(200, registerResponse.statusCode());
+        int accountID = objectMapper.readValue(registerResponse.body(), Account.class).account_id;
+        long hits = metric("account_id_cache_hits_total");
+
+        HttpResponse<String> postResponse = send("POST", "/messages",
+                "{\"posted_by\": " + accountID + ", \"message_text\": \"first post\", \"time_posted_epoch\": 1669947792}");
+
+        Assert.assertEquals(200, postResponse.statusCode());
+        Assert.assertEquals(new Message(2, accountID, "first post", 1669947792), objectMapper.readValue(postResponse.body(), Message.class));
+        Assert.assertEquals(hits + 1, metric("account_id_cache_hits_total"));
+        Assert.assertEquals(400, send("POST", "/messages",
+                "{\"posted_by\": " + (accountID + 1) + ", \"message_text\": \"no one\", \"time_posted_epoch\": 1669947792}").statusCode());
+    }
+}
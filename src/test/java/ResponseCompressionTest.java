@@ -0,0 +1,115 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import Controller.SocialMediaController;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class ResponseCompressionTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, add enough messages for a listing to be worth compressing, restart the
+     * Javalin app, and create a new webClient for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException, SQLException {
+        ConnectionUtil.resetTestDatabase();
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            connection.createStatement().execute("INSERT INTO message (posted_by, message_text, time_posted_epoch) "
+                    + "SELECT 1, 'test message ' || X, 1669947792 + X FROM SYSTEM_RANGE(2, 200)");
+        }
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    private HttpResponse<byte[]> get(String path, String acceptEncoding) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder().uri(URI.create("http://localhost:8080" + path));
+        if (acceptEncoding != null)
+            request.header("Accept-Encoding", acceptEncoding);
+        return webClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private static byte[] gunzip(byte[] compressed) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/messages and GET localhost:8080/messages?limit=1000, which is
+     * streamed, with and without Accept-Encoding: gzip
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: Gzipped when gzip is accepted, and otherwise identical to the uncompressed listing
+     */
+    @Test
+    public void largeListingsAreGzippedWhenAccepted() throws IOException, InterruptedException {
+        for (String path : new String[] { "/messages", "/messages?limit=1000" }) {
+            HttpResponse<byte[]> plain = get(path, null);
+            HttpResponse<byte[]> compressed = get(path, "gzip, deflate");
+
+            Assert.assertEquals(200, compressed.statusCode());
+            Assert.assertFalse(plain.headers().firstValue("Content-Encoding").isPresent());
+            Assert.assertEquals("gzip", compressed.headers().firstValue("Content-Encoding").orElse(null));
+            Assert.assertTrue(compressed.headers().firstValue("Vary").orElse("").contains("Accept-Encoding"));
+            Assert.assertTrue(compressed.body().length < plain.body().length / 4);
+            Assert.assertArrayEquals(plain.body(), gunzip(compressed.body()));
+        }
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/1 with Accept-Encoding: gzip
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: Uncompressed, since it is below the size threshold
+     */
+    @Test
+    public void smallResponsesAreNotCompressed() throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = get("/messages/1", "gzip");
+
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertFalse(response.headers().firstValue("Content-Encoding").isPresent());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages with Accept-Encoding: gzip;q=0, identity
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: Uncompressed, since the client refused gzip
+     */
+    @Test
+    public void refusedEncodingIsNotUsed() throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = get("/messages", "gzip;q=0, identity");
+
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertFalse(response.headers().firstValue("Content-Encoding").isPresent());
+    }
+}
@@ -0,0 +1,115 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Message;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class RetrieveMessagesByIDsTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private List<Message> messages(HttpResponse<String> response) throws IOException {
+        Assert.assertEquals(200, response.statusCode());
+        return objectMapper.readValue(response.body(), new TypeReference<List<Message>>() {});
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages?ids=1,99,1
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: The messages in the requested order, repeated where their IDs repeat, and null for the ID with no message
+     */
+    @Test
+    public void messagesAreReturnedInRequestOrder() throws IOException, InterruptedException {
+        Message expected = new Message(1, 1, "test message 1", 1669947792);
+        Assert.assertEquals(Arrays.asList(expected, null, expected), messages(send("GET", "/messages?ids=1,99,1", null)));
+        // The second read is answered from the cache.
+        Assert.assertEquals(Arrays.asList(null, expected), messages(send("GET", "/messages?ids=99,%201", null)));
+        Assert.assertEquals(List.of(), messages(send("GET", "/messages?ids=", null)));
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages/lookup with a JSON array of IDs
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: The same as GET localhost:8080/messages?ids= with those IDs
+     */
+    @Test
+    public void lookupTakesIDsInTheBody() throws IOException, InterruptedException {
+        HttpResponse<String> created = send("POST", "/messages",
+                objectMapper.writeValueAsString(new Message(1, "second message", 1669947800)));
+        Message second = objectMapper.readValue(created.body(), Message.class);
+        Assert.assertEquals(Arrays.asList(second, null, new Message(1, 1, "test message 1", 1669947792)),
+                messages(send("POST", "/messages/lookup", "[2, 3, 1]")));
+    }
+
+    /**
+     * Sending http requests with IDs that aren't numbers, a body that isn't a JSON array of IDs, or more IDs than a
+     * batch may hold
+     *
+     * Expected Response:
+     *  Status Code: 400
+     *  Response Body: Empty
+     */
+    @Test
+    public void invalidIDsAreRejected() throws IOException, InterruptedException {
+        int[] ids = new int[1001];
+        for (String[] request : new String[][] { { "GET", "/messages?ids=1,x", null }, { "POST", "/messages/lookup", "null" },
+                { "POST", "/messages/lookup", "[1," }, { "POST", "/messages/lookup", "{\"ids\": [1]}" },
+                { "POST", "/messages/lookup", "[\"1\"]" },
+                { "POST", "/messages/lookup", objectMapper.writeValueAsString(ids) } }) {
+            HttpResponse<String> response = send(request[0], request[1], request[2]);
+            Assert.assertEquals(request[1], 400, response.statusCode());
+            Assert.assertEquals("", response.body());
+        }
+    }
+}
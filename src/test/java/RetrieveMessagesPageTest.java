@@ -0,0 +1,152 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Message;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class RetrieveMessagesPageTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web. A second message is posted so that listings span more than one page.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws IOException, InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{"+
+                        "\"posted_by\":1, " +
+                        "\"message_text\": \"test message 2\", " +
+                        "\"time_posted_epoch\": 1669947700 }"))
+                .header("Content-Type", "application/json")
+                .build();
+        webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/messages?limit=1 and following the returned cursor
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: JSON representation of one message per page, in message_id order
+     *  X-Next-Cursor: present on the first page only
+     */
+    @Test
+    public void getMessagesPageFollowCursor() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages?limit=1"))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+
+        Assert.assertEquals(200, response.statusCode());
+        List<Message> expectedResult = new ArrayList<>();
+        expectedResult.add(new Message(1, 1, "test message 1", 1669947792));
+        Assert.assertEquals(expectedResult, objectMapper.readValue(response.body(), new TypeReference<List<Message>>(){}));
+        String cursor = response.headers().firstValue("X-Next-Cursor").orElse(null);
+        Assert.assertNotNull(cursor);
+
+        HttpRequest nextRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages?limit=1&after=" + cursor))
+                .build();
+        HttpResponse<String> nextResponse = webClient.send(nextRequest, HttpResponse.BodyHandlers.ofString());
+
+        Assert.assertEquals(200, nextResponse.statusCode());
+        List<Message> expectedNextResult = new ArrayList<>();
+        expectedNextResult.add(new Message(2, 1, "test message 2", 1669947700));
+        Assert.assertEquals(expectedNextResult, objectMapper.readValue(nextResponse.body(), new TypeReference<List<Message>>(){}));
+        Assert.assertFalse(nextResponse.headers().firstValue("X-Next-Cursor").isPresent());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/1/messages?order=time_posted_epoch&limit=1
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: JSON representation of the earliest posted message
+     */
+    @Test
+    public void getAccountMessagesPageOrderedByTime() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/1/messages?order=time_posted_epoch&limit=1"))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+
+        Assert.assertEquals(200, response.statusCode());
+        List<Message> expectedResult = new ArrayList<>();
+        expectedResult.add(new Message(2, 1, "test message 2", 1669947700));
+        Assert.assertEquals(expectedResult, objectMapper.readValue(response.body(), new TypeReference<List<Message>>(){}));
+        Assert.assertTrue(response.headers().firstValue("X-Next-Cursor").isPresent());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages with an invalid cursor
+     *
+     * Expected Response:
+     *  Status Code: 400
+     *  Response Body:
+     */
+    @Test
+    public void getMessagesPageInvalidCursor() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages?after=not-a-cursor"))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+
+        Assert.assertEquals(400, response.statusCode());
+        Assert.assertEquals("", response.body());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/1/messages?stream=true
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: JSON representation of every message posted by the user
+     */
+    @Test
+    public void getAccountMessagesStreamed() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/1/messages?stream=true"))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+
+        Assert.assertEquals(200, response.statusCode());
+        List<Message> expectedResult = new ArrayList<>();
+        expectedResult.add(new Message(1, 1, "test message 1", 1669947792));
+        expectedResult.add(new Message(2, 1, "test message 2", 1669947700));
+        Assert.assertEquals(expectedResult, objectMapper.readValue(response.body(), new TypeReference<List<Message>>(){}));
+    }
+}
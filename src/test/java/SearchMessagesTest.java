@@ -0,0 +1,147 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Message;
+import Service.MessageService;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class SearchMessagesTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private List<Message> search(String q) throws IOException, InterruptedException {
+        HttpResponse<String> response = send("GET", "/messages/search?q=" + URLEncoder.encode(q, StandardCharsets.UTF_8), null);
+        Assert.assertEquals(200, response.statusCode());
+        return objectMapper.readValue(response.body(), new TypeReference<List<Message>>() {});
+    }
+
+    private void post(String text) throws IOException, InterruptedException {
+        String body = objectMapper.writeValueAsString(new Message(1, text, 1669947792));
+        Assert.assertEquals(200, send("POST", "/messages", body).statusCode());
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/messages/search?q=... after posting messages
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: The messages containing every word of the query, whatever their case or punctuation, newest first
+     */
+    @Test
+    public void searchMatchesEveryWordNewestFirst() throws IOException, InterruptedException {
+        post("Coffee with friends, then the park.");
+        post("coffee alone");
+        post("The PARK at noon");
+
+        Assert.assertEquals(List.of(new Message(4, 1, "The PARK at noon", 1669947792),
+                new Message(2, 1, "Coffee with friends, then the park.", 1669947792)), search("park"));
+        Assert.assertEquals(List.of(new Message(2, 1, "Coffee with friends, then the park.", 1669947792)),
+                search("park COFFEE!"));
+        Assert.assertEquals(List.of(new Message(1, 1, "test message 1", 1669947792)), search("test message"));
+        Assert.assertEquals(List.of(), search("coffee noon"));
+        Assert.assertEquals(List.of(), search("cof"));
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/messages/search?q=... after patching and deleting messages
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: Only the messages' current text is matched
+     */
+    @Test
+    public void searchFollowsPatchesAndDeletes() throws IOException, InterruptedException {
+        post("first draft");
+        Assert.assertEquals(200, send("PATCH", "/messages/2", "{\"message_text\": \"final version\"}").statusCode());
+
+        Assert.assertEquals(List.of(), search("draft"));
+        Assert.assertEquals(List.of(new Message(2, 1, "final version", 1669947792)), search("final"));
+
+        Assert.assertEquals(200, send("DELETE", "/messages/2", null).statusCode());
+        Assert.assertEquals(List.of(), search("final"));
+    }
+
+    /**
+     * Searching with a message service whose index holds entries for newer messages that no longer match, as a write
+     * that landed between reading the index and reading the messages would leave
+     *
+     * Expected Result:
+     *  The stale entries are skipped and the page is still filled with the older matches
+     */
+    @Test
+    public void staleEntriesDoNotShortenPage() throws Exception {
+        post("park one");
+        post("park two");
+        MessageService messageService = new MessageService();
+        for (int id = 10; id < 15; id++)
+            messageService.searchIndex.add(new Message(id, 1, "park", 1669947792));
+
+        Assert.assertEquals(List.of(new Message(3, 1, "park two", 1669947792), new Message(2, 1, "park one", 1669947792)),
+                messageService.searchMessages("park", 2));
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/messages/search without a query and with an invalid limit
+     *
+     * Expected Response:
+     *  Status Code: 400
+     *  Response Body: Empty
+     */
+    @Test
+    public void searchRejectsMissingQueryAndBadLimit() throws IOException, InterruptedException {
+        for (String path : new String[] { "/messages/search", "/messages/search?q=%20", "/messages/search?q=test&limit=0",
+                "/messages/search?q=test&limit=x" }) {
+            HttpResponse<String> response = send("GET", path, null);
+            Assert.assertEquals(path, 400, response.statusCode());
+            Assert.assertEquals("", response.body());
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AccountIdCacheTest {
+    private static final int CHUNK_BITS = 1 << 16;
+
+    /**
+     * Adding IDs on either side of word and chunk boundaries.
+     *
+     * Expected: Exactly the added IDs are found, including the first and last bit of each word and chunk.
+     */
+    @Test
+    public void findsIdsAcrossWordAndChunkBoundaries() {
+        AccountIdCache cache = new AccountIdCache(3 * CHUNK_BITS);
+        int[] added = { 1, 63, 64, 127, CHUNK_BITS - 1, CHUNK_BITS, CHUNK_BITS + 1, 2 * CHUNK_BITS + 63, 3 * CHUNK_BITS };
+        for (int id : added)
+            cache.add(id);
+
+        for (int id : added)
+            Assert.assertTrue(Integer.toString(id), cache.contains(id));
+        for (int id : new int[] { 2, 62, 65, 128, CHUNK_BITS - 2, CHUNK_BITS + 2, 2 * CHUNK_BITS, 2 * CHUNK_BITS + 64 })
+            Assert.assertFalse(Integer.toString(id), cache.contains(id));
+        Assert.assertEquals(added.length, cache.size());
+    }
+
+    /**
+     * Adding and checking IDs outside the range the cache covers.
+     *
+     * Expected: They are never cached, and checking them counts as a miss rather than failing.
+     */
+    @Test
+    public void ignoresIdsOutsideRange() {
+        AccountIdCache cache = new AccountIdCache(100);
+        for (int id : new int[] { 0, -1, 101, CHUNK_BITS, Integer.MAX_VALUE }) {
+            cache.add(id);
+            Assert.assertFalse(Integer.toString(id), cache.contains(id));
+        }
+        cache.add(100);
+        Assert.assertTrue(cache.contains(100));
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals(1, cache.hits());
+        Assert.assertEquals(5, cache.misses());
+    }
+
+    /**
+     * Adding the same ID twice.
+     *
+     * Expected: The ID is only counted once.
+     */
+    @Test
+    public void addingTwiceCountsOnce() {
+        AccountIdCache cache = new AccountIdCache(1000);
+        cache.add(7);
+        cache.add(7);
+        Assert.assertEquals(1, cache.size());
+    }
+
+    /**
+     * Adding IDs that share words and chunks from several threads at once.
+     *
+     * Expected: No concurrent add is lost, and every ID is counted once.
+     */
+    @Test
+    public void concurrentAddsAreNotLost() throws InterruptedException {
+        AccountIdCache cache = new AccountIdCache(4 * CHUNK_BITS);
+        int threadCount = 4;
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            int offset = t;
+            Thread thread = new Thread(() -> {
+                // Each thread adds every fourth ID, so neighbouring bits of the same word are set by different threads.
+                for (int id = 1 + offset; id <= 2 * CHUNK_BITS; id += threadCount)
+                    cache.add(id);
+                // Every thread also adds the same IDs, so all of them race to claim each one.
+                for (int id = 3 * CHUNK_BITS; id < 3 * CHUNK_BITS + 1000; id++)
+                    cache.add(id);
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        for (int id = 1; id <= 2 * CHUNK_BITS; id++)
+            Assert.assertTrue(Integer.toString(id), cache.contains(id));
+        Assert.assertEquals(2 * CHUNK_BITS + 1000, cache.size());
+    }
+}
@@ -0,0 +1,135 @@
+package Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import Model.Message;
+
+public class MessageCacheTest {
+    MessageCache cache;
+    AtomicInteger loads;
+
+    @Before
+    public void setUp() {
+        cache = new MessageCache(1000, 60000);
+        loads = new AtomicInteger();
+    }
+
+    private Message load(int id) {
+        loads.incrementAndGet();
+        return new Message(id, 1, "message " + id + " load " + loads.get(), 0);
+    }
+
+    /**
+     * Getting the same message twice.
+     *
+     * Expected: The first get loads the message and the second is served from the cache.
+     */
+    @Test
+    public void readsThrough() {
+        Message first = cache.get(1, this::load);
+        Assert.assertSame(first, cache.get(1, this::load));
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals(1, cache.hits());
+        Assert.assertEquals(1, cache.misses());
+        Assert.assertEquals(1, cache.size());
+    }
+
+    /**
+     * Getting a message that doesn't exist.
+     *
+     * Expected: Nothing is cached, so the next get asks the loader again.
+     */
+    @Test
+    public void missingMessageIsNotCached() {
+        Assert.assertNull(cache.get(1, id -> null));
+        Assert.assertEquals(0, cache.size());
+        Assert.assertNotNull(cache.get(1, this::load));
+    }
+
+    /**
+     * Getting a message, invalidating it, and getting it again.
+     *
+     * Expected: The second get loads the message again.
+     */
+    @Test
+    public void invalidateDropsMessage() {
+        cache.get(1, this::load);
+        cache.invalidate(1);
+        Assert.assertEquals("message 1 load 2", cache.get(1, this::load).message_text);
+        Assert.assertEquals(2, loads.get());
+    }
+
+    /**
+     * Getting a message whose loader is overtaken by a write that invalidates it, as a slow reader would be.
+     *
+     * Expected: The value loaded before the write is returned to that reader but not cached, so the next get loads
+     * the message again.
+     */
+    @Test
+    public void loadOvertakenByWriteIsNotCached() {
+        Message stale = cache.get(1, id -> {
+            Message loaded = load(id);
+            cache.invalidate(id);
+            return loaded;
+        });
+        Assert.assertEquals("message 1 load 1", stale.message_text);
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals("message 1 load 2", cache.get(1, this::load).message_text);
+    }
+
+    /**
+     * Loading several messages with one call while a write invalidates one of them.
+     *
+     * Expected: Only the messages that weren't written during the load are cached.
+     */
+    @Test
+    public void loadAllSkipsMessagesWrittenDuringLoad() {
+        List<Message> loaded = cache.loadAll(new int[] { 1, 2, 3 }, ids -> {
+            List<Message> messages = new ArrayList<>();
+            for (int id : ids)
+                messages.add(load(id));
+            cache.invalidate(2);
+            return messages;
+        });
+        Assert.assertEquals(3, loaded.size());
+        Assert.assertNotNull(cache.getIfPresent(1));
+        Assert.assertNull(cache.getIfPresent(2));
+        Assert.assertNotNull(cache.getIfPresent(3));
+        Assert.assertNull(cache.loadAll(new int[] { 4 }, ids -> null));
+    }
+
+    /**
+     * Caching two messages that fall in the same segment of a cache holding one message per segment.
+     *
+     * Expected: The least recently used message is evicted.
+     */
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        cache = new MessageCache(16, 60000);
+        cache.get(0, this::load);
+        cache.get(16, this::load);
+        Assert.assertNull(cache.getIfPresent(0));
+        Assert.assertNotNull(cache.getIfPresent(16));
+        Assert.assertEquals(1, cache.evictions());
+    }
+
+    /**
+     * Getting a message after its time to live has passed.
+     *
+     * Expected: The message is loaded again.
+     */
+    @Test
+    public void expiredMessageIsLoadedAgain() throws InterruptedException {
+        cache = new MessageCache(1000, 1);
+        cache.get(1, this::load);
+        Thread.sleep(10);
+        Assert.assertNull(cache.getIfPresent(1));
+        Assert.assertEquals("message 1 load 2", cache.get(1, this::load).message_text);
+    }
+}
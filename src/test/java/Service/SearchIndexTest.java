@@ -0,0 +1,92 @@
+package Service;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import Model.Message;
+
+public class SearchIndexTest {
+    SearchIndex index;
+
+    @Before
+    public void setUp() {
+        index = new SearchIndex();
+    }
+
+    private int[] search(String q) {
+        return index.search(SearchIndex.terms(q), 10);
+    }
+
+    /**
+     * Indexing a new message after it was patched, as when the patch's index update overtakes the post's.
+     *
+     * Expected: The post's text doesn't replace the patched text.
+     */
+    @Test
+    public void newMessageDoesNotReplacePatch() {
+        index.add(new Message(1, 1, "patched text", 0));
+        index.addNew(new Message(1, 1, "posted text", 0));
+
+        Assert.assertArrayEquals(new int[] { 1 }, search("patched"));
+        Assert.assertArrayEquals(new int[0], search("posted"));
+        Assert.assertEquals(1, index.size());
+    }
+
+    /**
+     * Indexing a new message after it was deleted, as when the delete's index update overtakes the post's.
+     *
+     * Expected: The deleted message stays out of the index.
+     */
+    @Test
+    public void newMessageDoesNotReturnAfterDelete() {
+        index.remove(1);
+        index.addNew(new Message(1, 1, "posted text", 0));
+
+        Assert.assertArrayEquals(new int[0], search("posted"));
+        Assert.assertEquals(0, index.size());
+    }
+
+    /**
+     * Indexing new messages, removing one, and compacting the index by replacing the others' text repeatedly.
+     *
+     * Expected: The removed message stays out of the index, and the others match only their latest text.
+     */
+    @Test
+    public void removalSurvivesCompaction() {
+        for (int id = 1; id <= 3; id++)
+            index.addNew(new Message(id, 1, "message " + id, 0));
+        index.remove(2);
+        for (int i = 0; i < 100; i++) {
+            index.add(new Message(1, 1, "first " + i, 0));
+            index.add(new Message(3, 1, "third " + i, 0));
+        }
+        index.addNew(new Message(2, 1, "message 2", 0));
+
+        Assert.assertArrayEquals(new int[0], search("message"));
+        Assert.assertArrayEquals(new int[] { 3, 1 }, search("99"));
+        Assert.assertEquals(List.of("third", "99"), SearchIndex.terms("third 99"));
+        Assert.assertArrayEquals(new int[] { 3 }, search("third 99"));
+        Assert.assertEquals(2, index.size());
+    }
+
+    /**
+     * Replacing a message's one-off terms over and over.
+     *
+     * Expected: The ordinals of the terms that emptied are reused, so the index doesn't grow a slot per term ever
+     * indexed, and searches still only match the current terms.
+     */
+    @Test
+    public void ordinalsOfEmptiedTermsAreReused() {
+        index.addNew(new Message(1, 1, "kept", 0));
+        for (int i = 0; i < 1000; i++)
+            index.add(new Message(2, 1, "kept once" + i + " twice" + i, 0));
+
+        Assert.assertTrue(index.ordinals() <= 5);
+        Assert.assertArrayEquals(new int[] { 2, 1 }, search("kept"));
+        Assert.assertArrayEquals(new int[] { 2 }, search("once999 twice999"));
+        Assert.assertArrayEquals(new int[0], search("once998"));
+    }
+}
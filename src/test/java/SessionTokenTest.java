@@ -0,0 +1,168 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Account;
+import Model.Message;
+import Service.SessionService;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class SessionTokenTest {
+    private static final String SECRET = "session-token-test-secret";
+
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        System.setProperty("session.secret", SECRET);
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+        System.clearProperty("session.secret");
+    }
+
+    private HttpResponse<String> login(String username, String password) throws IOException, InterruptedException {
+        return sendAccount("/login", username, password, null);
+    }
+
+    private HttpResponse<String> sendAccount(String path, String username, String password, String token)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .POST(HttpRequest.BodyPublishers.ofString("{" +
+                        "\"username\": \"" + username + "\", " +
+                        "\"password\": \"" + password + "\" }"))
+                .header("Content-Type", "application/json");
+        if (token != null)
+            postRequest.header("Authorization", "Bearer " + token);
+        return webClient.send(postRequest.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> postMessage(String token) throws IOException, InterruptedException {
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{"+
+                        "\"posted_by\":1, " +
+                        "\"message_text\": \"hello message\", " +
+                        "\"time_posted_epoch\": 1669947792}"))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + token)
+                .build();
+        return webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/login, then POST localhost:8080/messages with the returned token
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  X-Session-Token: a token accepted by later requests
+     *  Response Body: JSON representation of message object
+     */
+    @Test
+    public void postMessageWithSessionToken() throws IOException, InterruptedException {
+        HttpResponse<String> loginResponse = login("testuser1", "password");
+        Assert.assertEquals(200, loginResponse.statusCode());
+        String token = loginResponse.headers().firstValue("X-Session-Token").orElse(null);
+        Assert.assertNotNull(token);
+
+        HttpResponse<String> response = postMessage(token);
+
+        Assert.assertEquals(200, response.statusCode());
+        Message expectedResult = new Message(2, 1, "hello message", 1669947792);
+        Assert.assertEquals(expectedResult, objectMapper.readValue(response.body(), Message.class));
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages with a tampered token
+     *
+     * Expected Response:
+     *  Status Code: 401
+     *  Response Body:
+     */
+    @Test
+    public void postMessageWithInvalidSessionToken() throws IOException, InterruptedException {
+        String token = login("testuser1", "password").headers().firstValue("X-Session-Token").orElse(null);
+        String tampered = "2" + token.substring(token.indexOf('.'));
+
+        HttpResponse<String> response = postMessage(tampered);
+
+        Assert.assertEquals(401, response.statusCode());
+        Assert.assertEquals("", response.body());
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/register, then logging in twice with the stored hash
+     *
+     * Expected Response:
+     *  Status Code: 200 for the correct password, 401 for a wrong one
+     *  Response Body: JSON representation of user object
+     */
+    @Test
+    public void loginWithHashedPassword() throws IOException, InterruptedException {
+        HttpRequest registerRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/register"))
+                .POST(HttpRequest.BodyPublishers.ofString("{" +
+                        "\"username\": \"user\", " +
+                        "\"password\": \"password\" }"))
+                .header("Content-Type", "application/json")
+                .build();
+        webClient.send(registerRequest, HttpResponse.BodyHandlers.ofString());
+
+        HttpResponse<String> response = login("user", "password");
+
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertEquals(new Account(2, "user", "password"), objectMapper.readValue(response.body(), Account.class));
+        Assert.assertEquals(401, login("user", "pass123").statusCode());
+    }
+
+    /**
+     * Sending http requests to POST localhost:8080/login and POST localhost:8080/register with an expired token and
+     * with a tampered one, then POST localhost:8080/messages with the expired token
+     *
+     * Expected Response:
+     *  Status Code: 200 for logging in and registering, which ignore the token; 401 for posting
+     *  X-Session-Token: a fresh token from each login
+     */
+    @Test
+    public void expiredOrTamperedTokenDoesNotBlockLogin() throws IOException, InterruptedException {
+        String expired = new SessionService(SECRET, -60).issue(1);
+        String tampered = "2" + expired.substring(expired.indexOf('.'));
+
+        for (String token : new String[] { expired, tampered }) {
+            HttpResponse<String> loginResponse = sendAccount("/login", "testuser1", "password", token);
+            Assert.assertEquals(200, loginResponse.statusCode());
+            Assert.assertTrue(loginResponse.headers().firstValue("X-Session-Token").isPresent());
+        }
+        Assert.assertEquals(200, sendAccount("/register", "newuser", "password", expired).statusCode());
+        Assert.assertEquals(401, postMessage(expired).statusCode());
+    }
+}
@@ -0,0 +1,125 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Message;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class TimeRangeMessagesTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, add user 2 and messages 2 to 7 posted out of time order, restart the
+     * Javalin app, and create a new webClient and ObjectMapper for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException, SQLException {
+        ConnectionUtil.resetTestDatabase();
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            connection.createStatement().execute("INSERT INTO account (username, password) VALUES ('testuser2', 'password')");
+            connection.createStatement().execute("INSERT INTO message (posted_by, message_text, time_posted_epoch) VALUES "
+                    + "(2, 'at 300', 300), (1, 'at 100', 100), (2, 'at 200', 200), "
+                    + "(1, 'at 400', 400), (1, 'also at 200', 200), (2, 'at 500', 500)");
+        }
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private List<Message> messages(HttpResponse<String> response) throws IOException {
+        Assert.assertEquals(200, response.statusCode());
+        return objectMapper.readValue(response.body(), new TypeReference<List<Message>>() {});
+    }
+
+    private static int[] ids(List<Message> messages) {
+        return messages.stream().mapToInt(message -> message.message_id).toArray();
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/messages?since=200&amp;until=400, and with only one of the bounds
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: The messages posted from since up to but not including until, in time_posted_epoch order
+     */
+    @Test
+    public void messagesAreBoundedByTime() throws IOException, InterruptedException {
+        Assert.assertArrayEquals(new int[] { 4, 6, 2 }, ids(messages(get("/messages?since=200&until=400"))));
+        Assert.assertArrayEquals(new int[] { 5, 7, 1 }, ids(messages(get("/messages?since=400"))));
+        Assert.assertArrayEquals(new int[] { 3 }, ids(messages(get("/messages?until=200"))));
+        Assert.assertArrayEquals(new int[] { 2, 4, 6 }, ids(messages(get("/messages?since=200&until=400&order=message_id"))));
+        Assert.assertArrayEquals(new int[] {}, ids(messages(get("/messages?since=300&until=300"))));
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/accounts/1/messages?since=100&amp;until=500&amp;limit=2 and following the
+     * returned cursor
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: The account's messages in the range, two per page, in time_posted_epoch order
+     */
+    @Test
+    public void accountMessagesInRangeArePaginated() throws IOException, InterruptedException {
+        HttpResponse<String> first = get("/accounts/1/messages?since=100&until=500&limit=2");
+        Assert.assertArrayEquals(new int[] { 3, 6 }, ids(messages(first)));
+        String cursor = first.headers().firstValue("X-Next-Cursor").orElseThrow();
+        HttpResponse<String> second = get("/accounts/1/messages?since=100&until=500&limit=2&after=" + cursor);
+        Assert.assertArrayEquals(new int[] { 5 }, ids(messages(second)));
+        Assert.assertFalse(second.headers().firstValue("X-Next-Cursor").isPresent());
+
+        Assert.assertArrayEquals(new int[] { 4, 2, 7 }, ids(messages(get("/accounts/2/messages?since=200&stream=true"))));
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/messages with a bound that isn't a number, or a range that ends
+     * before it starts
+     *
+     * Expected Response:
+     *  Status Code: 400
+     *  Response Body: Empty
+     */
+    @Test
+    public void invalidRangesAreRejected() throws IOException, InterruptedException {
+        for (String path : new String[] { "/messages?since=x", "/messages?until=1.5", "/messages?since=400&until=200",
+                "/accounts/1/messages?since=400&until=200&stream=true" }) {
+            HttpResponse<String> response = get(path);
+            Assert.assertEquals(path, 400, response.statusCode());
+            Assert.assertEquals("", response.body());
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package Util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConnectionPoolTest {
+    private static int databases;
+
+    JdbcDataSource dataSource;
+    ConnectionPool pool;
+
+    /**
+     * Before every test, point a data source at a fresh in-memory database, so each test's pool starts empty and
+     * doesn't share connections with the application's pool.
+     */
+    @Before
+    public void setUp() {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:connection-pool-test-" + databases++ + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        dataSource.setPassword("sa");
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.createStatement().execute("SHUTDOWN");
+        }
+    }
+
+    private ConnectionPool pool(int maxSize, long borrowTimeoutMillis, long leakDetectionMillis) {
+        return new ConnectionPool(dataSource, maxSize, 0, borrowTimeoutMillis, 600000, leakDetectionMillis, 2, 16, null);
+    }
+
+    /**
+     * Borrowing from a pool whose only connection is borrowed.
+     *
+     * Expected: getConnection waits out the borrow timeout and fails, then succeeds once the connection is returned.
+     */
+    @Test
+    public void exhaustedPoolTimesOut() throws SQLException {
+        pool = pool(1, 200, 0);
+        Connection held = pool.getConnection();
+
+        long start = System.currentTimeMillis();
+        try {
+            pool.getConnection();
+            Assert.fail("Borrowing from an exhausted pool should time out.");
+        } catch (SQLException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Timed out after 200ms"));
+        }
+        Assert.assertTrue(System.currentTimeMillis() - start >= 200);
+
+        held.close();
+        try (Connection connection = pool.getConnection()) {
+            Assert.assertFalse(connection.isClosed());
+            Assert.assertEquals(1, pool.getActiveCount());
+        }
+        Assert.assertEquals(1, pool.getTotalCount());
+    }
+
+    /**
+     * Returning a connection with uncommitted work and auto-commit off, then borrowing the same physical connection.
+     *
+     * Expected: The work was rolled back and the next borrower gets the connection back in auto-commit mode.
+     */
+    @Test
+    public void releaseRollsBackAndRestoresAutoCommit() throws SQLException {
+        pool = pool(1, 1000, 0);
+        try (Connection connection = pool.getConnection()) {
+            connection.createStatement().execute("create table item (id int primary key)");
+            connection.setAutoCommit(false);
+            connection.createStatement().executeUpdate("insert into item values (1)");
+        }
+
+        try (Connection connection = pool.getConnection()) {
+            Assert.assertTrue(connection.getAutoCommit());
+            ResultSet rs = connection.createStatement().executeQuery("select count(*) from item");
+            rs.next();
+            Assert.assertEquals(0, rs.getInt(1));
+        }
+        Assert.assertEquals(1, pool.getTotalCount());
+    }
+
+    /**
+     * Closing a borrowed connection twice.
+     *
+     * Expected: The second close does nothing, so only one permit is returned to the pool and a second borrower
+     * still times out while the first re-borrowed connection is held. The closed handle can't be used again.
+     */
+    @Test
+    public void closeIsIdempotent() throws SQLException {
+        pool = pool(1, 200, 0);
+        Connection connection = pool.getConnection();
+        connection.close();
+        connection.close();
+        Assert.assertTrue(connection.isClosed());
+        Assert.assertEquals(0, pool.getActiveCount());
+        Assert.assertEquals(1, pool.getIdleCount());
+
+        try (Connection held = pool.getConnection()) {
+            try {
+                pool.getConnection();
+                Assert.fail("Closing a connection twice should not return two permits.");
+            } catch (SQLException e) {
+                Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Timed out"));
+            }
+            try {
+                connection.createStatement();
+                Assert.fail("A returned connection should not be usable.");
+            } catch (SQLException e) {
+                Assert.assertEquals("Connection has already been returned to the pool.", e.getMessage());
+            }
+            Assert.assertFalse(held.isClosed());
+        }
+    }
+
+    /**
+     * Holding a connection for longer than the leak detection threshold.
+     *
+     * Expected: The housekeeper logs a warning with the stack trace of the borrower, once.
+     */
+    @Test
+    public void heldConnectionIsReportedAsLeaked() throws Exception {
+        pool = pool(1, 1000, 100);
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        PrintStream err = System.err;
+        System.setErr(new PrintStream(captured, true, StandardCharsets.UTF_8));
+        Connection connection = pool.getConnection();
+        try {
+            String warning = "Connection has been borrowed for more than 100ms and may have leaked.";
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!captured.toString(StandardCharsets.UTF_8).contains(warning) && System.currentTimeMillis() < deadline)
+                Thread.sleep(50);
+            // Give the housekeeper another run to show the leak is only reported once.
+            Thread.sleep(1200);
+
+            String output = captured.toString(StandardCharsets.UTF_8);
+            Assert.assertTrue(output, output.contains(warning));
+            Assert.assertEquals(output.indexOf(warning), output.lastIndexOf(warning));
+            Assert.assertTrue(output, output.contains("java.lang.Exception: Connection borrowed here"));
+            Assert.assertTrue(output, output.contains(getClass().getName() + ".heldConnectionIsReportedAsLeaked"));
+        } finally {
+            connection.close();
+            System.setErr(err);
+        }
+    }
+}
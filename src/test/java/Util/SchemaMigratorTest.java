@@ -0,0 +1,120 @@
+package Util;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SchemaMigratorTest {
+    private static final String LOCATION = "db/test-migration/";
+    private static int databases;
+
+    JdbcDataSource dataSource;
+    ConnectionPool pool;
+
+    /**
+     * Before every test, create a pool over a fresh in-memory database, so each test migrates an empty schema.
+     */
+    @Before
+    public void setUp() {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:schema-migrator-test-" + databases++ + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        dataSource.setPassword("sa");
+        pool = new ConnectionPool(dataSource, 2, 0, 1000, 600000, 0, 2, 0, null);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.createStatement().execute("SHUTDOWN");
+        }
+    }
+
+    private SchemaMigrator migrator(String... migrations) {
+        return new SchemaMigrator(pool, LOCATION, migrations);
+    }
+
+    private int count(String sql) throws SQLException {
+        try (Connection connection = pool.getConnection()) {
+            ResultSet rs = connection.createStatement().executeQuery(sql);
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private boolean tableExists(String table) throws SQLException {
+        return count("SELECT COUNT(*) FROM information_schema.tables WHERE table_name = '" + table.toUpperCase() + "'") == 1;
+    }
+
+    /**
+     * Migrating twice with the same scripts.
+     *
+     * Expected: The first run applies and records both scripts, and the second run applies nothing.
+     */
+    @Test
+    public void secondRunIsNoOp() throws SQLException {
+        Assert.assertEquals(2, migrator("V1__create_widget.sql", "V2__create_gadget.sql").migrate());
+        Assert.assertEquals(0, migrator("V1__create_widget.sql", "V2__create_gadget.sql").migrate());
+        Assert.assertEquals(2, count("SELECT COUNT(*) FROM schema_version"));
+        Assert.assertEquals(1, count("SELECT COUNT(*) FROM gadget"));
+    }
+
+    /**
+     * Migrating with a script whose contents changed after it was applied under the same version.
+     *
+     * Expected: The migration fails instead of ignoring the edit.
+     */
+    @Test
+    public void changedScriptIsRejected() {
+        migrator("V1__create_widget.sql").migrate();
+        try {
+            migrator("V1__create_widget_edited.sql").migrate();
+            Assert.fail("An edited migration should be rejected.");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("Migration V1__create_widget_edited.sql has changed since it was applied.", e.getMessage());
+        }
+    }
+
+    /**
+     * Migrating with a script that fails on its second statement, then again once the script is fixed.
+     *
+     * Expected: The failed script isn't recorded, though the DDL that ran before the failure was committed. The
+     * fixed script then applies over it, because it only creates what doesn't exist yet.
+     */
+    @Test
+    public void scriptFailingPartwayCanBeRerun() throws SQLException {
+        try {
+            migrator("V1__create_widget.sql", "V2__create_gadget_broken.sql").migrate();
+            Assert.fail("A failing migration should be reported.");
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("Migration V2__create_gadget_broken.sql failed"));
+        }
+        Assert.assertEquals(1, count("SELECT COUNT(*) FROM schema_version"));
+        Assert.assertTrue(tableExists("gadget"));
+
+        Assert.assertEquals(1, migrator("V1__create_widget.sql", "V2__create_gadget.sql").migrate());
+        Assert.assertEquals(2, count("SELECT COUNT(*) FROM schema_version"));
+        Assert.assertEquals(1, count("SELECT COUNT(*) FROM gadget"));
+    }
+
+    /**
+     * Applying the application's migrations, forgetting they were applied, and applying them again.
+     *
+     * Expected: Every script is safe to re-run, so all of them apply again without error.
+     */
+    @Test
+    public void applicationMigrationsCanBeRerun() throws SQLException {
+        SchemaMigrator migrator = new SchemaMigrator(pool);
+        Assert.assertEquals(SchemaMigrator.MIGRATIONS.length, migrator.migrate());
+        try (Connection connection = pool.getConnection()) {
+            connection.createStatement().executeUpdate("DELETE FROM schema_version");
+        }
+        Assert.assertEquals(SchemaMigrator.MIGRATIONS.length, migrator.migrate());
+    }
+}
@@ -0,0 +1,146 @@
+package Util;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StatementCacheTest {
+    private static final String SELECT_A = "SELECT 1";
+    private static final String SELECT_B = "SELECT 2";
+    private static final String SELECT_C = "SELECT 3";
+
+    Connection physical;
+    LongAdder hits;
+    LongAdder misses;
+    StatementCache cache;
+
+    /**
+     * Before every test, open a physical connection to a private in-memory database and give it a cache of two
+     * statements.
+     */
+    @Before
+    public void setUp() throws SQLException {
+        physical = DriverManager.getConnection("jdbc:h2:mem:", "sa", "sa");
+        hits = new LongAdder();
+        misses = new LongAdder();
+        cache = new StatementCache(physical, 2, hits, misses);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        cache.closeAll();
+        physical.close();
+    }
+
+    private PreparedStatement prepare(String sql) throws SQLException {
+        return cache.prepare(sql, Statement.NO_GENERATED_KEYS);
+    }
+
+    private static int selectOne(PreparedStatement statement) throws SQLException {
+        ResultSet rs = statement.executeQuery();
+        rs.next();
+        return rs.getInt(1);
+    }
+
+    /**
+     * Preparing A, B, A again and then C in a cache of two, one borrow each.
+     *
+     * Expected: C evicts B, the least recently used, so A is still served from the cache and B has to be prepared
+     * again.
+     */
+    @Test
+    public void evictsLeastRecentlyUsed() throws SQLException {
+        PreparedStatement a = prepare(SELECT_A);
+        cache.release();
+        prepare(SELECT_B);
+        cache.release();
+        Assert.assertSame(a, prepare(SELECT_A));
+        cache.release();
+        prepare(SELECT_C);
+        cache.release();
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(1, hits.sum());
+        Assert.assertEquals(3, misses.sum());
+
+        Assert.assertSame(a, prepare(SELECT_A));
+        cache.release();
+        Assert.assertEquals(2, hits.sum());
+        prepare(SELECT_B);
+        cache.release();
+        Assert.assertEquals(4, misses.sum());
+    }
+
+    /**
+     * Preparing more statements than the cache holds within a single borrow.
+     *
+     * Expected: The evicted statement keeps working until the connection is returned, and is closed then.
+     */
+    @Test
+    public void evictedStatementStaysOpenUntilRelease() throws SQLException {
+        PreparedStatement a = prepare(SELECT_A);
+        prepare(SELECT_B);
+        prepare(SELECT_C);
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(1, selectOne(a));
+
+        cache.release();
+        try {
+            a.executeQuery();
+            Assert.fail("An evicted statement should be closed once the connection is returned.");
+        } catch (SQLException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Preparing the same SQL twice within a single borrow.
+     *
+     * Expected: The second prepare returns null so the connection prepares a separate uncached statement, and the
+     * cached statement is served again to the next borrower.
+     */
+    @Test
+    public void statementInUseFallsBackToUncached() throws SQLException {
+        PreparedStatement first = prepare(SELECT_A);
+        Assert.assertNull(prepare(SELECT_A));
+        Assert.assertEquals(1, selectOne(first));
+        Assert.assertEquals(0, hits.sum());
+        Assert.assertEquals(1, misses.sum());
+
+        cache.release();
+        Assert.assertSame(first, prepare(SELECT_A));
+        Assert.assertEquals(1, hits.sum());
+    }
+
+    /**
+     * Changing a per-statement setting on a cached statement, then returning the connection.
+     *
+     * Expected: The statement is discarded rather than handed to the next borrower with that setting, while binding
+     * parameters does not discard it.
+     */
+    @Test
+    public void dirtyStatementIsDiscarded() throws SQLException {
+        PreparedStatement parameterized = prepare("SELECT CAST(? AS INT)");
+        parameterized.setInt(1, 5);
+        Assert.assertEquals(5, selectOne(parameterized));
+        PreparedStatement dirty = prepare(SELECT_A);
+        dirty.setMaxRows(1);
+        cache.release();
+        Assert.assertEquals(1, cache.size());
+
+        Assert.assertSame(parameterized, prepare("SELECT CAST(? AS INT)"));
+        PreparedStatement fresh = prepare(SELECT_A);
+        Assert.assertNotSame(dirty, fresh);
+        Assert.assertEquals(0, fresh.getMaxRows());
+        Assert.assertEquals(1, hits.sum());
+        Assert.assertEquals(3, misses.sum());
+    }
+}
@@ -0,0 +1,3 @@
+create table if not exists widget (
+    widget_id int primary key
+);
@@ -0,0 +1,4 @@
+create table if not exists widget (
+    widget_id int primary key,
+    name varchar(255)
+);
@@ -0,0 +1,4 @@
+create table if not exists gadget (
+    gadget_id int primary key
+);
+insert into gadget values (1);
@@ -0,0 +1,5 @@
+-- Fails on its second statement, after H2 has already committed the first.
+create table if not exists gadget (
+    gadget_id int primary key
+);
+insert into missing_table values (1);